@@ -0,0 +1,151 @@
+package com.bigfatbrowncat.datetimechoice;
+
+import java.util.TimeZone;
+
+/**
+ * {@link CalendarBackend} computing the fields with plain integer arithmetic 
+ * on the proleptic Gregorian calendar (days since the epoch, leap years, month lengths).
+ * 
+ * Only the UTC offset is taken from the {@link TimeZone}, through the per-year table 
+ * of its transitions (see {@link ZoneTransitionTable}). The local times 
+ * falling into a daylight saving gap or overlap are resolved the same way 
+ * <code>java.util.GregorianCalendar</code> resolves them: as the standard time.
+ */
+public class ArithmeticCalendarBackend implements CalendarBackend {
+	static final long MILLIS_PER_MINUTE = 60 * 1000L;
+	static final long MINUTES_PER_DAY = 24 * 60L;
+	
+	// Days between 0000-03-01 and 1970-01-01
+	private static final long EPOCH_SHIFT = 719468;
+	private static final long DAYS_PER_ERA = 146097;
+	
+	// No time zone has two offset transitions closer than this
+	private static final long TRANSITION_WINDOW = 2 * 24 * 60 * 60 * 1000L;
+	
+	private ZoneTransitionTable transitions;
+	
+	public ArithmeticCalendarBackend(TimeZone timeZone) {
+		transitions = new ZoneTransitionTable(timeZone);
+	}
+	
+	@Override
+	public TimeZone getTimeZone() {
+		return transitions.getTimeZone();
+	}
+	
+	@Override
+	public void setTimeZone(TimeZone timeZone) {
+		transitions = new ZoneTransitionTable(timeZone);
+	}
+	
+	/**
+	 * @return the transition table of the zone, shared with the view's {@link DaylightGapConstraint}
+	 */
+	ZoneTransitionTable getTransitions() {
+		return transitions;
+	}
+	
+	/**
+	 * The same as {@link TimeZone#getOffset(long)}, but looked up in the transition table
+	 */
+	int getOffset(long millis) {
+		return transitions.getOffset(millis);
+	}
+	
+	/**
+	 * @param month the month (January = 1, February = 2, ...)
+	 * @return the days since 1970-01-01
+	 */
+	static long toEpochDay(int year, int month, int dayOfMonth) {
+		// The years are counted from March, so that the leap day is the last one
+		long y = month <= 2 ? year - 1 : year;
+		long era = (y >= 0 ? y : y - 399) / 400;
+		long yearOfEra = y - era * 400;
+		long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + dayOfMonth - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * DAYS_PER_ERA + dayOfEra - EPOCH_SHIFT;
+	}
+	
+	/**
+	 * Splits the days since 1970-01-01 into the year, the month and the day of month
+	 */
+	static void fromEpochDay(long epochDay, int[] fields) {
+		long z = epochDay + EPOCH_SHIFT;
+		long era = (z >= 0 ? z : z - DAYS_PER_ERA + 1) / DAYS_PER_ERA;
+		long dayOfEra = z - era * DAYS_PER_ERA;
+		long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		long shiftedMonth = (5 * dayOfYear + 2) / 153;
+		
+		int month = (int)(shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+		fields[DateTimeBounds.YEAR] = (int)(yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+		fields[DateTimeBounds.MONTH] = month;
+		fields[DateTimeBounds.DAY_OF_MONTH] = (int)(dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+	}
+	
+	/**
+	 * @return the minutes since 1970-01-01 00:00 of the local time (the wall clock minutes)
+	 */
+	static long toLocalMinutes(int year, int month, int dayOfMonth, int hourOfDay, int minute) {
+		return toEpochDay(year, month, dayOfMonth) * MINUTES_PER_DAY + hourOfDay * 60 + minute;
+	}
+	
+	/**
+	 * Splits the local minutes (see {@link #toLocalMinutes(int, int, int, int, int)}) into the fields
+	 */
+	static void fromLocalMinutes(long localMinutes, int[] fields) {
+		long epochDay = floorDiv(localMinutes, MINUTES_PER_DAY);
+		int minuteOfDay = (int)(localMinutes - epochDay * MINUTES_PER_DAY);
+		
+		fromEpochDay(epochDay, fields);
+		fields[DateTimeBounds.HOUR_OF_DAY] = minuteOfDay / 60;
+		fields[DateTimeBounds.MINUTE] = minuteOfDay % 60;
+	}
+	
+	/**
+	 * @return the milliseconds since the epoch of the local time as if it was in UTC
+	 */
+	static long toLocalMillis(int year, int month, int dayOfMonth, int hourOfDay, int minute) {
+		return toLocalMinutes(year, month, dayOfMonth, hourOfDay, minute) * MILLIS_PER_MINUTE;
+	}
+	
+	/**
+	 * Splits the local time (in milliseconds as if it was in UTC) into the fields
+	 */
+	static void fromLocalMillis(long localMillis, int[] fields) {
+		fromLocalMinutes(floorDiv(localMillis, MILLIS_PER_MINUTE), fields);
+	}
+	
+	static long floorDiv(long x, long y) {
+		long q = x / y;
+		if ((x % y != 0) && ((x ^ y) < 0)) q--;
+		return q;
+	}
+	
+	/**
+	 * Converts the local time to UTC. A local time belongs to the period after 
+	 * an offset transition if it isn't earlier than the transition time 
+	 * shown with the new offset, that resolves the gaps and the overlaps the way
+	 * <code>java.util.GregorianCalendar</code> resolves them
+	 */
+	long localToUtc(long localMillis) {
+		long guess = localMillis - transitions.getTimeZone().getRawOffset();
+		int earlyOffset = transitions.getOffset(guess - TRANSITION_WINDOW);
+		int lateOffset = transitions.getOffset(guess + TRANSITION_WINDOW);
+		
+		if (earlyOffset == lateOffset || transitions.getOffset(localMillis - lateOffset) == lateOffset) {
+			return localMillis - lateOffset;
+		}
+		return localMillis - earlyOffset;
+	}
+	
+	@Override
+	public long toMillis(int year, int month, int dayOfMonth, int hourOfDay, int minute) {
+		return localToUtc(toLocalMillis(year, month, dayOfMonth, hourOfDay, minute));
+	}
+	
+	@Override
+	public void toFields(long millis, int[] fields) {
+		fromLocalMillis(millis + transitions.getOffset(millis), fields);
+	}
+}
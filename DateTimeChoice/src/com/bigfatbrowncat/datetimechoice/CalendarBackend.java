@@ -0,0 +1,32 @@
+package com.bigfatbrowncat.datetimechoice;
+
+import java.util.TimeZone;
+
+/**
+ * Date arithmetic used by {@link DateTimeChoice}: the conversions between 
+ * milliseconds since the epoch and the local date/time fields.
+ * 
+ * The fields arrays contain the year, the month (January = 1, February = 2, ...), 
+ * the day of month, the hour of day and the minute in this order.
+ * 
+ * The implementations aren't required to be thread safe.
+ * 
+ * @see ArithmeticCalendarBackend
+ * @see GregorianCalendarBackend
+ */
+public interface CalendarBackend {
+	public TimeZone getTimeZone();
+	
+	public void setTimeZone(TimeZone timeZone);
+	
+	/**
+	 * @param month the month (January = 1, February = 2, ...)
+	 * @return the milliseconds since the epoch of the local time in the backend's time zone
+	 */
+	public long toMillis(int year, int month, int dayOfMonth, int hourOfDay, int minute);
+	
+	/**
+	 * Splits the time into the local fields in the backend's time zone (the seconds are dropped)
+	 */
+	public void toFields(long millis, int[] fields);
+}
@@ -0,0 +1,188 @@
+package com.bigfatbrowncat.datetimechoice;
+
+/**
+ * Links two {@link DateTimeChoice} views into a range: the start and the end
+ * (i.e. a meeting start and its end limited by the maximum duration).
+ *
+ * The start is limited by the range limits only. The end is kept within
+ * <code>[start + minDuration, start + maxDuration]</code> (and within the limits too),
+ * so the minimum duration is the gap between the start and the end.
+ * The bounds of both views are calculated here in one place: a change of the start
+ * recomputes the end bounds once, a change of the end recomputes nothing,
+ * and the views don't listen to each other.
+ */
+public final class DateRangeController {
+
+	public interface OnRangeChangedListener {
+		/**
+		 * Occurs synchronously after the user has changed the start or the end
+		 * and the other view has been clamped
+		 */
+		public void onRangeChanged(DateRangeController controller, long startMillis, long endMillis);
+	}
+
+	private final DateTimeChoice startChoice;
+	private final DateTimeChoice endChoice;
+
+	private long minValue = DateTimeChoiceModel.NO_BOUND;
+	private long maxValue = DateTimeChoiceModel.NO_BOUND;
+	private long minDuration = 0;
+	private long maxDuration = DateTimeChoiceModel.NO_BOUND;
+
+	private OnRangeChangedListener rangeChangedListener;
+
+	/**
+	 * Links the views. The bounds set on them before are replaced with the range ones.
+	 */
+	public DateRangeController(DateTimeChoice startChoice, DateTimeChoice endChoice) {
+		if (startChoice.rangeController != null || endChoice.rangeController != null) {
+			throw new IllegalStateException("The view is linked to another range already");
+		}
+
+		this.startChoice = startChoice;
+		this.endChoice = endChoice;
+		startChoice.rangeController = this;
+		endChoice.rangeController = this;
+
+		updateBounds();
+	}
+
+	/**
+	 * Detaches the controller from the views. The views keep their current bounds.
+	 */
+	public void unlink() {
+		startChoice.rangeController = null;
+		endChoice.rangeController = null;
+	}
+
+	public DateTimeChoice getStartChoice() {
+		return startChoice;
+	}
+
+	public DateTimeChoice getEndChoice() {
+		return endChoice;
+	}
+
+	public long getStartMillis() {
+		return startChoice.getValueMillis();
+	}
+
+	public long getEndMillis() {
+		return endChoice.getValueMillis();
+	}
+
+	/**
+	 * Sets both the start and the end. The end is clamped to the bounds the new start gives.
+	 */
+	public void setRange(long startMillis, long endMillis) {
+		startChoice.setValueMillis(startMillis);
+		// The end is clamped to the bounds of the new start, not the old one
+		updateEndBounds();
+		endChoice.setValueMillis(endMillis);
+	}
+
+	public long getMinValueMillis() {
+		return minValue;
+	}
+
+	public long getMaxValueMillis() {
+		return maxValue;
+	}
+
+	/**
+	 * @param minValue the lowest start in milliseconds since the epoch or {@link DateTimeChoiceModel#NO_BOUND}
+	 * @param maxValue the highest end in milliseconds since the epoch or {@link DateTimeChoiceModel#NO_BOUND}
+	 */
+	public void setLimitsMillis(long minValue, long maxValue) {
+		this.minValue = minValue;
+		this.maxValue = maxValue;
+		updateBounds();
+	}
+
+	public long getMinDuration() {
+		return minDuration;
+	}
+
+	public long getMaxDuration() {
+		return maxDuration;
+	}
+
+	/**
+	 * @param minDuration the shortest range in milliseconds (zero lets the end be equal to the start)
+	 * @param maxDuration the longest range in milliseconds or {@link DateTimeChoiceModel#NO_BOUND}
+	 */
+	public void setDurations(long minDuration, long maxDuration) {
+		if (minDuration < 0) {
+			throw new IllegalArgumentException("The minimum duration can't be negative");
+		}
+		if (maxDuration != DateTimeChoiceModel.NO_BOUND && maxDuration < minDuration) {
+			throw new IllegalArgumentException("The maximum duration is shorter than the minimum one");
+		}
+		this.minDuration = minDuration;
+		this.maxDuration = maxDuration;
+		updateBounds();
+	}
+
+	public void setOnRangeChangedListener(OnRangeChangedListener rangeChangedListener) {
+		this.rangeChangedListener = rangeChangedListener;
+	}
+
+	/**
+	 * Called by the linked views after the user has changed one of them
+	 */
+	void onPickerChanged(DateTimeChoice view) {
+		if (view == startChoice) {
+			int clampedFields = updateEndBounds();
+			if (clampedFields != 0) {
+				// The end has been moved by the user's change, so it's reported as the user's one
+				endChoice.onRangeClamped(clampedFields);
+			}
+		}
+
+		if (rangeChangedListener != null) {
+			rangeChangedListener.onRangeChanged(this, startChoice.getValueMillis(), endChoice.getValueMillis());
+		}
+	}
+
+	private void updateBounds() {
+		long startMax = DateTimeChoiceModel.NO_BOUND;
+		if (maxValue != DateTimeChoiceModel.NO_BOUND) {
+			// Leaving the room for the shortest range
+			startMax = maxValue - minDuration;
+			if (minValue != DateTimeChoiceModel.NO_BOUND && startMax < minValue) {
+				startMax = minValue;
+			}
+		}
+		startChoice.setBoundsMillis(minValue, startMax);
+		updateEndBounds();
+	}
+
+	/**
+	 * @return the fields of the end which have been clamped
+	 */
+	private int updateEndBounds() {
+		long start = startChoice.getValueMillis();
+
+		long endMin = saturatedAdd(start, minDuration);
+		long endMax = maxValue;
+		if (maxDuration != DateTimeChoiceModel.NO_BOUND) {
+			long longest = saturatedAdd(start, maxDuration);
+			if (longest != Long.MAX_VALUE) {
+				endMax = maxValue != DateTimeChoiceModel.NO_BOUND ? Math.min(maxValue, longest) : longest;
+			}
+		}
+		if (endMax != DateTimeChoiceModel.NO_BOUND && endMax < endMin) {
+			// The limits don't leave enough room for the shortest range, the end stays on the highest value
+			endMin = endMax;
+		}
+		return endChoice.setBoundsMillis(endMin, endMax);
+	}
+
+	/**
+	 * @return the sum of the value and the non-negative duration, 
+	 * <code>Long.MAX_VALUE</code> if it's too large (the longest durations don't bound the end)
+	 */
+	private static long saturatedAdd(long value, long duration) {
+		return value > Long.MAX_VALUE - duration ? Long.MAX_VALUE : value + duration;
+	}
+}
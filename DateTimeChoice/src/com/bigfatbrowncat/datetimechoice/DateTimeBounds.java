@@ -0,0 +1,312 @@
+package com.bigfatbrowncat.datetimechoice;
+
+/**
+ * Calculates the bounds of the {@link DateTimeChoice} fields.
+ *
+ * The fields are clamped one after another (year, month, day, hour, minute
+ * and optionally second and millisecond) against the optional lowest and highest values. Every field that lies on the edge
+ * of the allowed range narrows the bounds of the next one.
+ *
+ * If a {@link DateTimeConstraint} is set, the value is moved to the nearest allowed one
+ * and the bounds of each field are narrowed to the values at which something is allowed.
+ * It takes a couple of constraint lookups per field.
+ *
+ * The calculator works on primitive fields only and doesn't allocate anything,
+ * so it is safe to call it on every spin tick.
+ */
+final class DateTimeBounds {
+	static final int YEAR = 0;
+	static final int MONTH = 1;
+	static final int DAY_OF_MONTH = 2;
+	static final int HOUR_OF_DAY = 3;
+	static final int MINUTE = 4;
+	static final int SECOND = 5;
+	static final int MILLISECOND = 6;
+
+	static final int FIELDS_COUNT = 7;
+
+	static final int DEFAULT_LOWEST_YEAR = 1970;
+	static final int DEFAULT_HIGHEST_YEAR = 2100;
+
+	private static final int[] FIELD_LOWEST = { DEFAULT_LOWEST_YEAR, 1, 1, 0, 0, 0, 0 };
+	private static final int[] FIELD_HIGHEST = { DEFAULT_HIGHEST_YEAR, 12, 31, 23, 59, 59, 999 };
+
+	private static final int[] DAYS_IN_MONTH = { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+
+	private final int[] lowest = new int[FIELDS_COUNT];
+	private final int[] highest = new int[FIELDS_COUNT];
+	private boolean hasLowest;
+	private boolean hasHighest;
+	// The fields after these are always zero
+	private int fieldsCount = MINUTE + 1;
+
+	private final int[] lower = new int[FIELDS_COUNT];
+	private final int[] higher = new int[FIELDS_COUNT];
+	private final int[] values = new int[FIELDS_COUNT];
+
+	private DateTimeConstraint constraint;
+	private long lowestMinutes;
+	private long highestMinutes;
+	private final int[] scratchFields = new int[FIELDS_COUNT];
+
+	static boolean isLeapYear(int year) {
+		// A year divisible by 100 is divisible by 400 if it's divisible by 16
+		return (year & 3) == 0 && (year % 100 != 0 || (year & 15) == 0);
+	}
+
+	/**
+	 * @param month the month (January = 1, February = 2, ...)
+	 * @param year
+	 * @return the number of days in the month
+	 */
+	static int getHighestDayInMonth(int month, int year) {
+		if (month == 2 && isLeapYear(year)) {
+			return 29;
+		}
+		return DAYS_IN_MONTH[month - 1];
+	}
+
+	void setLowest(int[] fields) {
+		System.arraycopy(fields, 0, lowest, 0, FIELDS_COUNT);
+		hasLowest = true;
+	}
+
+	void clearLowest() {
+		hasLowest = false;
+	}
+
+	void setHighest(int[] fields) {
+		System.arraycopy(fields, 0, highest, 0, FIELDS_COUNT);
+		hasHighest = true;
+	}
+
+	void clearHighest() {
+		hasHighest = false;
+	}
+
+	int getFieldsCount() {
+		return fieldsCount;
+	}
+
+	/**
+	 * @param fieldsCount how many fields are used: up to the minute, the second or the millisecond
+	 */
+	void setFieldsCount(int fieldsCount) {
+		this.fieldsCount = fieldsCount;
+	}
+
+	DateTimeConstraint getConstraint() {
+		return constraint;
+	}
+
+	void setConstraint(DateTimeConstraint constraint) {
+		this.constraint = constraint;
+	}
+
+	private static long toLocalMinutes(int[] fields) {
+		return ArithmeticCalendarBackend.toLocalMinutes(fields[YEAR], fields[MONTH], fields[DAY_OF_MONTH],
+		                                                fields[HOUR_OF_DAY], fields[MINUTE]);
+	}
+
+	/**
+	 * Clamps the given value field by field and calculates the bounds of each field.
+	 * The results are available through {@link #getLower(int)}, {@link #getHigher(int)}
+	 * and {@link #getValue(int)}.
+	 * @param fields the value in the field order (the month is January = 1, February = 2, ...), 
+	 * the unused fields are ignored
+	 * @param keptField the field which should keep its value if the constraint allows it 
+	 * (the one the user has just changed) or -1
+	 */
+	void compute(int[] fields, int keptField) {
+		for (int field = 0; field < FIELDS_COUNT; field++) {
+			values[field] = field < fieldsCount ? fields[field] : 0;
+			lower[field] = 0;
+			higher[field] = 0;
+		}
+
+		clamp(0, hasLowest, hasHighest);
+
+		if (constraint != null) {
+			applyConstraint(keptField);
+		}
+	}
+
+	/**
+	 * Clamps the fields starting from <code>firstField</code>
+	 * @param onLowest whether the fields before are on the lowest value
+	 * @param onHighest whether the fields before are on the highest value
+	 */
+	private void clamp(int firstField, boolean onLowest, boolean onHighest) {
+		for (int field = firstField; field < fieldsCount; field++) {
+			int low = onLowest ? lowest[field] : FIELD_LOWEST[field];
+			int high;
+			if (onHighest) {
+				high = highest[field];
+			} else if (field == DAY_OF_MONTH) {
+				high = getHighestDayInMonth(values[MONTH], values[YEAR]);
+			} else {
+				high = FIELD_HIGHEST[field];
+			}
+
+			if (low > high) low = high;
+
+			int value = values[field];
+			if (value < low) value = low;
+			if (value > high) value = high;
+
+			values[field] = value;
+			lower[field] = low;
+			higher[field] = high;
+
+			onLowest = onLowest && value == low;
+			onHighest = onHighest && value == high;
+		}
+	}
+
+	/**
+	 * Fills the scratch fields with the first (or the last) minute having the same fields
+	 * before <code>field</code> as the value has
+	 */
+	private long getSpanEdge(int field, boolean last) {
+		for (int i = 0; i < FIELDS_COUNT; i++) {
+			if (i < field) {
+				scratchFields[i] = values[i];
+			} else if (i == DAY_OF_MONTH && last) {
+				scratchFields[i] = getHighestDayInMonth(scratchFields[MONTH], scratchFields[YEAR]);
+			} else {
+				scratchFields[i] = last ? FIELD_HIGHEST[i] : FIELD_LOWEST[i];
+			}
+		}
+		return toLocalMinutes(scratchFields);
+	}
+
+	private long getSpanStart(int field) {
+		// The years are limited by the lowest value only
+		return field == YEAR ? lowestMinutes : Math.max(getSpanEdge(field, false), lowestMinutes);
+	}
+
+	private long getSpanEnd(int field) {
+		return field == YEAR ? highestMinutes : Math.min(getSpanEdge(field, true), highestMinutes);
+	}
+
+	/**
+	 * @return the lowest allowed minute in <code>[from, to]</code> or {@link DateTimeConstraint#NONE}
+	 */
+	private long ceilingWithin(long from, long to) {
+		if (from > to) {
+			return DateTimeConstraint.NONE;
+		}
+		long allowed = IntersectionConstraint.ceiling(constraint, from, to);
+		return allowed != DateTimeConstraint.NONE && allowed <= to ? allowed : DateTimeConstraint.NONE;
+	}
+
+	/**
+	 * @return the highest allowed minute in <code>[from, to]</code> or {@link DateTimeConstraint#NONE}
+	 */
+	private long floorWithin(long from, long to) {
+		if (from > to) {
+			return DateTimeConstraint.NONE;
+		}
+		long allowed = IntersectionConstraint.floor(constraint, to, from);
+		return allowed != DateTimeConstraint.NONE && allowed >= from ? allowed : DateTimeConstraint.NONE;
+	}
+
+	/**
+	 * @return the allowed minute in <code>[from, to]</code> nearest to <code>minutes</code> 
+	 * or {@link DateTimeConstraint#NONE}
+	 */
+	private long nearestWithin(long minutes, long from, long to) {
+		long above = ceilingWithin(Math.max(minutes, from), to);
+		long below = floorWithin(from, Math.min(minutes, to));
+		if (above == DateTimeConstraint.NONE) {
+			return below;
+		}
+		if (below == DateTimeConstraint.NONE || above - minutes <= minutes - below) {
+			return above;
+		}
+		return below;
+	}
+
+	private void applyConstraint(int keptField) {
+		lowestMinutes = toLocalMinutes(hasLowest ? lowest : FIELD_LOWEST);
+		highestMinutes = toLocalMinutes(hasHighest ? highest : FIELD_HIGHEST);
+		long minutes = toLocalMinutes(values);
+
+		// Staying within the field the user has changed if possible
+		long allowed = DateTimeConstraint.NONE;
+		if (keptField >= 0) {
+			allowed = nearestWithin(minutes, getSpanStart(keptField + 1), getSpanEnd(keptField + 1));
+		}
+		if (allowed == DateTimeConstraint.NONE) {
+			allowed = nearestWithin(minutes, lowestMinutes, highestMinutes);
+		}
+		if (allowed == DateTimeConstraint.NONE) {
+			// Nothing is allowed at all, leaving the bounds only
+			return;
+		}
+		ArithmeticCalendarBackend.fromLocalMinutes(allowed, values);
+
+		// The value is allowed, so each field has an allowed value within its span
+		int minuteFieldsCount = Math.min(fieldsCount, MINUTE + 1);
+		for (int field = 0; field < minuteFieldsCount; field++) {
+			long spanStart = getSpanStart(field);
+			long spanEnd = getSpanEnd(field);
+
+			ArithmeticCalendarBackend.fromLocalMinutes(ceilingWithin(spanStart, spanEnd), scratchFields);
+			lower[field] = scratchFields[field];
+			ArithmeticCalendarBackend.fromLocalMinutes(floorWithin(spanStart, spanEnd), scratchFields);
+			higher[field] = scratchFields[field];
+		}
+
+		// The constraint is as precise as a minute, the rest is bounded by the lowest and the highest values only
+		clamp(minuteFieldsCount, hasLowest && allowed == lowestMinutes, hasHighest && allowed == highestMinutes);
+	}
+
+	/**
+	 * Finds where a step of the field should stop, so that it doesn't stop 
+	 * at a value at which nothing is allowed. Works on the values of the last {@link #compute} call.
+	 * @param candidate the value the step has come to
+	 * @return the nearest value (not lower than <code>candidate</code> if raising, 
+	 * not higher otherwise) at which something is allowed or the current value 
+	 * of the field if there isn't such one
+	 */
+	int skip(int field, int candidate, boolean raising) {
+		if (constraint == null || field > MINUTE) {
+			return candidate;
+		}
+
+		// The span of the candidate value
+		int current = values[field];
+		values[field] = candidate;
+		long candidateStart = getSpanStart(field + 1);
+		long candidateEnd = getSpanEnd(field + 1);
+		long spanStart = getSpanStart(field);
+		long spanEnd = getSpanEnd(field);
+		values[field] = current;
+
+		long allowed;
+		if (raising) {
+			allowed = ceilingWithin(Math.max(candidateStart, spanStart), spanEnd);
+		} else {
+			allowed = floorWithin(spanStart, Math.min(candidateEnd, spanEnd));
+		}
+		if (allowed == DateTimeConstraint.NONE) {
+			return current;
+		}
+
+		ArithmeticCalendarBackend.fromLocalMinutes(allowed, scratchFields);
+		return scratchFields[field];
+	}
+
+	int getLower(int field) {
+		return lower[field];
+	}
+
+	int getHigher(int field) {
+		return higher[field];
+	}
+
+	int getValue(int field) {
+		return values[field];
+	}
+}
@@ -1,69 +1,85 @@
 package com.bigfatbrowncat.datetimechoice;
 
 import java.util.Calendar;
+import java.util.TimeZone;
 
 import android.content.Context;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
-import android.os.Bundle;
+import android.os.Build;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.util.AttributeSet;
+import android.util.SparseArray;
+import android.view.KeyEvent;
 import android.view.LayoutInflater;
 import android.view.View;
-import android.widget.LinearLayout;
-import android.widget.RelativeLayout;
+import android.view.ViewGroup;
+import android.widget.TextView;
 
-public class DateTimeChoice extends LinearLayout implements NumberSpinEdit.OnValueChangeListener {
+/**
+ * Date and time picker made of five {@link NumberSpinEdit} fields 
+ * (seven if the seconds and the milliseconds are shown).
+ * 
+ * The fields are arranged by the view itself in one measure pass: 
+ * the date row and the time row go side by side or one under another (see the <code>vertical</code> attribute).
+ */
+public class DateTimeChoice extends ViewGroup implements NumberSpinEdit.OnValueChangeListener {
 
 	private static final boolean DEFAULT_VERTICAL = false;
 	
+	// The field flags reported to OnDateTimeChangedListener
+	public static final int FIELD_YEAR = 1 << DateTimeBounds.YEAR;
+	public static final int FIELD_MONTH = 1 << DateTimeBounds.MONTH;
+	public static final int FIELD_DAY_OF_MONTH = 1 << DateTimeBounds.DAY_OF_MONTH;
+	public static final int FIELD_HOUR_OF_DAY = 1 << DateTimeBounds.HOUR_OF_DAY;
+	public static final int FIELD_MINUTE = 1 << DateTimeBounds.MINUTE;
+	public static final int FIELD_SECOND = 1 << DateTimeBounds.SECOND;
+	public static final int FIELD_MILLISECOND = 1 << DateTimeBounds.MILLISECOND;
+	
+	public interface OnDateTimeChangedListener {
+		/**
+		 * Occurs after the user has changed the value. The changes made within 
+		 * one frame (or within the quiet period, see {@link DateTimeChoice#setNotificationQuietPeriod(long)}) 
+		 * are reported once.
+		 * @param changedFields the fields changed since the previous notification, 
+		 * a combination of the <code>FIELD_*</code> flags
+		 */
+		public void onDateTimeChanged(DateTimeChoice view, int changedFields);
+	}
+	
+	public interface OnModelChangeListener {
+		/**
+		 * Occurs after the user has changed the value of the view bound to a model
+		 * @param oldModel the model the view was bound to
+		 * @param newModel the model with the new value, the view is bound to it now
+		 */
+		public void onModelChanged(DateTimeChoice view, DateTimeChoiceModel oldModel, DateTimeChoiceModel newModel);
+	}
+	
+	/**
+	 * The value and the bounds written to the parcel as they are, without a bundle 
+	 * (see {@link SavedStateEncoding}). The fields don't save their own states, 
+	 * so a screen with many pickers saves four longs per picker.
+	 */
 	private static class SavedState extends BaseSavedState {
-		private static final String FIELD_YEAR = "year";
-		private static final String FIELD_MONTH = "month";
-		private static final String FIELD_DAY_OF_MONTH = "day";
-		private static final String FIELD_HOUR_OF_DAY = "hour";
-		private static final String FIELD_MINUTE = "minute";
+		// null if the state of another version has been read
+		private DateTimeChoiceModel model;
 		
-		private Calendar value;
-		
-		public Calendar getValue() {
-			return value;
-		}
-
-		public void setValue(Calendar value) {
-			this.value = value;
-		}
-
 		SavedState(Parcelable superState) {
 			super(superState);
 		}
 
 		private SavedState(Parcel in) {
 			super(in);
-			Bundle calendarBundle = in.readBundle();
-			
-			Calendar cal = Calendar.getInstance();
-			cal.clear();
-			cal.set(Calendar.YEAR, calendarBundle.getInt(FIELD_YEAR));
-			cal.set(Calendar.MONTH, calendarBundle.getInt(FIELD_MONTH));
-			cal.set(Calendar.DAY_OF_MONTH, calendarBundle.getInt(FIELD_DAY_OF_MONTH));
-			cal.set(Calendar.HOUR_OF_DAY, calendarBundle.getInt(FIELD_HOUR_OF_DAY));
-			cal.set(Calendar.MINUTE, calendarBundle.getInt(FIELD_MINUTE));
-			value = cal;
+			// The array is read whole whatever its version is
+			model = SavedStateEncoding.decode(in.createLongArray());
 		}
 
 		@Override
 		public void writeToParcel(Parcel out, int flags) {
 			super.writeToParcel(out, flags);
-			Bundle cal = new Bundle();
-			
-			cal.putInt(FIELD_YEAR, value.get(Calendar.YEAR));
-			cal.putInt(FIELD_MONTH, value.get(Calendar.MONTH));
-			cal.putInt(FIELD_DAY_OF_MONTH, value.get(Calendar.DAY_OF_MONTH));
-			cal.putInt(FIELD_HOUR_OF_DAY, value.get(Calendar.HOUR_OF_DAY));
-			cal.putInt(FIELD_MINUTE, value.get(Calendar.MINUTE));
-			
-			out.writeBundle(cal);
+			out.writeLongArray(SavedStateEncoding.encode(model));
 		}
 
 		// required field that makes Parcelables from a Parcel
@@ -79,6 +95,7 @@ public class DateTimeChoice extends LinearLayout implements NumberSpinEdit.OnVal
 		};
 	}
 	
+	// Inflated when the date is shown for the first time
 	private NumberSpinEdit day_numberSpinEdit;
 	private NumberSpinEdit month_numberSpinEdit;
 	private NumberSpinEdit year_numberSpinEdit;
@@ -86,46 +103,185 @@ public class DateTimeChoice extends LinearLayout implements NumberSpinEdit.OnVal
 	private NumberSpinEdit hour_numberSpinEdit;
 	private NumberSpinEdit minute_numberSpinEdit;
 	
-	private RelativeLayout date_relativeLayout;
+	// Created when they are shown for the first time
+	private NumberSpinEdit second_numberSpinEdit;
+	private NumberSpinEdit millisecond_numberSpinEdit;
+	
+	// The fields in the DateTimeBounds order, the ones not created yet are null
+	private NumberSpinEdit[] fields;
+	private final int[] fieldSteps = { 1, 1, 1, 1, 1, 1, 1 };
+	// The values of the fields not created yet (the same as the layout defaults at first)
+	private final int[] absentValues = { 2013, 1, 1, 0, 0, 0, 0 };
+	
+	private TextView hourMinuteDelimiter_textView;
+	private TextView minuteSecondDelimiter_textView;
+	private TextView secondMillisecondDelimiter_textView;
+	
+	// The rows in the order of arrangement
+	private View[] dateRow;
+	private View[] timeRow;
+	
+	private boolean vertical;
+	private int spaceDateTime;
+	
+	private NumberSpinEdit.MonthValueConverter monthValueConverter;
+	// Created on the first text entry, it's dropped when the locale changes
+	private DateTimeTextParser textParser;
+	
+	// The text box the whole value is typed into (see setFastEntryView())
+	private TextView fastEntryView;
+	private final TextView.OnEditorActionListener fastEntryListener = new TextView.OnEditorActionListener() {
+		
+		@Override
+		public boolean onEditorAction(TextView v, int actionId, KeyEvent event) {
+			if (event != null && event.getAction() != KeyEvent.ACTION_DOWN) {
+				// Enter is handled when it's pressed, its release is swallowed
+				return true;
+			}
+			
+			if (setValueText(v.getText())) {
+				v.setError(null);
+				// Letting the text box perform the action itself (hiding the keyboard)
+				return false;
+			}
+			v.setError(getResources().getString(R.string.fast_entry_error));
+			return true;
+		}
+	};
 	
 	private boolean dateVisible = true;
+	private boolean secondsVisible;
+	private boolean millisecondsVisible;
 
-	private Calendar minValue;
-	private Calendar maxValue;
+	private long minValue = DateTimeChoiceModel.NO_BOUND;
+	private long maxValue = DateTimeChoiceModel.NO_BOUND;
+	
+	private final DateTimeBounds bounds = new DateTimeBounds();
+	// The constraint set by the user and the one excluding the daylight saving gaps
+	private DateTimeConstraint constraint;
+	private DaylightGapConstraint gapConstraint;
+	// The transitions of the zone if the calendar backend doesn't have its own table
+	private ZoneTransitionTable ownTransitions;
+	
+	// If false, the time zone follows the default one
+	private boolean timeZoneExplicit;
+	
+	// Reused for the conversions between milliseconds and the fields
+	private CalendarBackend calendarBackend = new ArithmeticCalendarBackend(TimeZone.getDefault());
+	private final int[] scratchFields = new int[DateTimeBounds.FIELDS_COUNT];
+	private final int[] valueFields = new int[DateTimeBounds.FIELDS_COUNT];
 	
-	private void initLayout(Context context, boolean isVertical) {
-		LayoutInflater layoutInflater = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
-		if (isVertical) {
-			layoutInflater.inflate(R.layout.view_date_time_choice_vertical, this, true);
+	private DateTimeChoiceModel boundModel;
+	private OnModelChangeListener modelChangeListener;
+	
+	private OnDateTimeChangedListener dateTimeChangedListener;
+	// Told about the user's changes synchronously, before the listeners are notified
+	DateRangeController rangeController;
+	private long notificationQuietPeriod;
+	private int pendingChangedFields;
+	private boolean notificationPosted;
+	
+	private final NumberSpinEdit.ValueSkipper fieldSkipper = new NumberSpinEdit.ValueSkipper() {
+		
+		@Override
+		public int skip(NumberSpinEdit view, int value, boolean raising) {
+			return bounds.skip(getFieldIndex(view), value, raising);
 		}
-		else
-		{
-			layoutInflater.inflate(R.layout.view_date_time_choice_horizontal, this, true);
+	};
+	
+	private final Runnable notificationRunnable = new Runnable() {
+		
+		@Override
+		public void run() {
+			notificationPosted = false;
+			int changedFields = pendingChangedFields;
+			pendingChangedFields = 0;
+			
+			if (dateTimeChangedListener != null && changedFields != 0) {
+				dateTimeChangedListener.onDateTimeChanged(DateTimeChoice.this, changedFields);
+			}
 		}
+	};
+	
+	private LayoutInflater createFieldInflater(Context context, boolean lightweight) {
+		NumberSpinEditPool pool = NumberSpinEditPool.getInstance();
+		if (pool != null && !isInEditMode()) {
+			// Taking the fields from the pool instead of inflating them
+			return pool.createInflater(context, lightweight);
+		} else {
+			return (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+		}
+	}
+	
+	private void initLayout(Context context, boolean isVertical, boolean lightweight) {
+		createFieldInflater(context, lightweight).inflate(R.layout.view_date_time_choice, this, true);
+		
+		vertical = isVertical;
+		spaceDateTime = getResources().getDimensionPixelSize(R.dimen.space_date_time);
 
 		hour_numberSpinEdit = (NumberSpinEdit)findViewById(R.id.hour_numberSpinEdit);
 		minute_numberSpinEdit = (NumberSpinEdit)findViewById(R.id.minute_numberSpinEdit);
-		day_numberSpinEdit = (NumberSpinEdit)findViewById(R.id.day_numberSpinEdit);
-		month_numberSpinEdit = (NumberSpinEdit)findViewById(R.id.month_numberSpinEdit);
-		year_numberSpinEdit = (NumberSpinEdit)findViewById(R.id.year_numberSpinEdit);
 		
-		date_relativeLayout = (RelativeLayout)findViewById(R.id.date_layout);
-
-		month_numberSpinEdit.setValueConverter(new NumberSpinEdit.MonthValueConverter(getContext()));
+		fields = new NumberSpinEdit[DateTimeBounds.FIELDS_COUNT];
+		fields[DateTimeBounds.HOUR_OF_DAY] = hour_numberSpinEdit;
+		fields[DateTimeBounds.MINUTE] = minute_numberSpinEdit;
 		
+		hourMinuteDelimiter_textView = (TextView)findViewById(R.id.hourMinuteDelimiter_textView);
+		
+		dateRow = new View[0];
+		timeRow = new View[] { hour_numberSpinEdit, hourMinuteDelimiter_textView, minute_numberSpinEdit };
+
 		if (!isInEditMode()) {
-			day_numberSpinEdit.setOnValueChangeListener(this);
-			month_numberSpinEdit.setOnValueChangeListener(this);
-			year_numberSpinEdit.setOnValueChangeListener(this);
-			
 			hour_numberSpinEdit.setOnValueChangeListener(this);
 			minute_numberSpinEdit.setOnValueChangeListener(this);
 		}
+		
+		updateConstraint();
+	}
+	
+	/**
+	 * Inflates the date fields. Until then the date lives in {@link #absentValues}, 
+	 * so the time-only pickers don't pay for the fields they don't show.
+	 */
+	private void createDateFields() {
+		boolean lightweight = minute_numberSpinEdit.isLightweight();
+		createFieldInflater(getContext(), lightweight).inflate(R.layout.view_date_fields, this, true);
+		
+		day_numberSpinEdit = (NumberSpinEdit)findViewById(R.id.day_numberSpinEdit);
+		month_numberSpinEdit = (NumberSpinEdit)findViewById(R.id.month_numberSpinEdit);
+		year_numberSpinEdit = (NumberSpinEdit)findViewById(R.id.year_numberSpinEdit);
+		
+		fields[DateTimeBounds.YEAR] = year_numberSpinEdit;
+		fields[DateTimeBounds.MONTH] = month_numberSpinEdit;
+		fields[DateTimeBounds.DAY_OF_MONTH] = day_numberSpinEdit;
+		
+		dateRow = new View[] { day_numberSpinEdit, month_numberSpinEdit, year_numberSpinEdit };
+		
+		if (monthValueConverter == null) {
+			monthValueConverter = new NumberSpinEdit.MonthValueConverter(getContext());
+		}
+		month_numberSpinEdit.setValueConverter(monthValueConverter);
+		
+		for (int i = DateTimeBounds.YEAR; i <= DateTimeBounds.DAY_OF_MONTH; i++) {
+			NumberSpinEdit field = fields[i];
+			field.setLightweight(lightweight);
+			field.setWheel(minute_numberSpinEdit.isWheel());
+			field.setStep(fieldSteps[i]);
+			field.setValueSkipper(minute_numberSpinEdit.getValueSkipper());
+			field.setValue(absentValues[i]);
+			if (!isInEditMode()) {
+				field.setOnValueChangeListener(this);
+			}
+		}
+		
+		// Setting the ranges
+		checkTimeBounds();
 	}
 
 	public DateTimeChoice(Context context) {
 		super(context);
-		initLayout(context, DEFAULT_VERTICAL);
+		initLayout(context, DEFAULT_VERTICAL, false);
+		setDateVisible(true);
 	}
 
 	public DateTimeChoice(Context context, AttributeSet attrs) {
@@ -134,42 +290,615 @@ public class DateTimeChoice extends LinearLayout implements NumberSpinEdit.OnVal
 		TypedArray attributes = context.getTheme().obtainStyledAttributes(attrs, R.styleable.DateTimeChoice, 0, 0);
 		boolean vertical = attributes.getBoolean(R.styleable.DateTimeChoice_vertical, DEFAULT_VERTICAL);
 		boolean dateVisible = attributes.getBoolean(R.styleable.DateTimeChoice_dateVisible, true);
+		boolean lightweight = attributes.getBoolean(R.styleable.DateTimeChoice_lightweight, false);
+		boolean wheel = attributes.getBoolean(R.styleable.DateTimeChoice_wheel, false);
+		int minuteStep = attributes.getInteger(R.styleable.DateTimeChoice_minuteStep, 1);
+		boolean secondsVisible = attributes.getBoolean(R.styleable.DateTimeChoice_secondsVisible, false);
+		boolean millisecondsVisible = attributes.getBoolean(R.styleable.DateTimeChoice_millisecondsVisible, false);
+		String timeZoneId = attributes.getString(R.styleable.DateTimeChoice_timeZone);
 		attributes.recycle();
 		
-		initLayout(context, vertical);
+		initLayout(context, vertical, lightweight || wheel);
+		
+		if (lightweight) {
+			// The fields draw themselves instead of hosting the buttons and the edit box
+			for (int i = DateTimeBounds.HOUR_OF_DAY; i <= DateTimeBounds.MINUTE; i++) {
+				fields[i].setLightweight(true);
+			}
+		}
+		if (wheel) {
+			// The fields are dragged and flung, the bounds are checked when they stop
+			for (int i = DateTimeBounds.HOUR_OF_DAY; i <= DateTimeBounds.MINUTE; i++) {
+				fields[i].setWheel(true);
+			}
+		}
 		
 		setDateVisible(dateVisible);
+		if (minuteStep != 1) {
+			setFieldStep(FIELD_MINUTE, minuteStep);
+		}
+		if (secondsVisible || millisecondsVisible) {
+			this.secondsVisible = secondsVisible;
+			this.millisecondsVisible = millisecondsVisible;
+			updatePrecision();
+		}
+		if (timeZoneId != null) {
+			setTimeZone(TimeZone.getTimeZone(timeZoneId));
+		}
+	}
+
+	/**
+	 * Gives the fields back to {@link NumberSpinEditPool} (if it's installed). 
+	 * The view can't be used after that.
+	 */
+	public void release() {
+		removeCallbacks(notificationRunnable);
+		notificationPosted = false;
+		
+		NumberSpinEditPool pool = NumberSpinEditPool.getInstance();
+		if (pool == null) {
+			return;
+		}
+		
+		for (int i = 0; i < fields.length; i++) {
+			NumberSpinEdit field = fields[i];
+			if (field == null || field.getParent() == null) {
+				// Not created or already released
+				continue;
+			}
+			((ViewGroup)field.getParent()).removeView(field);
+			pool.release(field);
+		}
 	}
 
 	public boolean isDateVisible() {
 		return dateVisible;
 	}
 
+	/**
+	 * Shows or hides the date fields. They are inflated only when they are shown for the first time.
+	 */
 	public void setDateVisible(boolean dateVisible) {
 		this.dateVisible = dateVisible;
-		date_relativeLayout.setVisibility(dateVisible ? View.VISIBLE : View.GONE);
+		if (dateVisible && day_numberSpinEdit == null) {
+			createDateFields();
+		}
+		for (int i = 0; i < dateRow.length; i++) {
+			dateRow[i].setVisibility(dateVisible ? View.VISIBLE : View.GONE);
+		}
+	}
+	
+	public boolean isSecondsVisible() {
+		return secondsVisible;
+	}
+	
+	/**
+	 * Shows the seconds field. While it's hidden, the seconds of the value are zero.
+	 */
+	public void setSecondsVisible(boolean secondsVisible) {
+		commitEdits();
+		long value = getValueMillis();
+		this.secondsVisible = secondsVisible;
+		updatePrecision();
+		setValueMillis(value);
+	}
+	
+	public boolean isMillisecondsVisible() {
+		return millisecondsVisible;
+	}
+	
+	/**
+	 * Shows the milliseconds field (and the seconds field along with it). 
+	 * While it's hidden, the milliseconds of the value are zero.
+	 */
+	public void setMillisecondsVisible(boolean millisecondsVisible) {
+		commitEdits();
+		long value = getValueMillis();
+		this.millisecondsVisible = millisecondsVisible;
+		updatePrecision();
+		setValueMillis(value);
+	}
+	
+	/**
+	 * Creates the sub-minute fields if they are needed and shows or hides them
+	 */
+	private void updatePrecision() {
+		int fieldsCount;
+		if (millisecondsVisible) {
+			fieldsCount = DateTimeBounds.MILLISECOND + 1;
+		} else if (secondsVisible) {
+			fieldsCount = DateTimeBounds.SECOND + 1;
+		} else {
+			fieldsCount = DateTimeBounds.MINUTE + 1;
+		}
+		
+		if (fieldsCount > DateTimeBounds.SECOND && second_numberSpinEdit == null) {
+			minuteSecondDelimiter_textView = createDelimiter(":");
+			second_numberSpinEdit = createField(DateTimeBounds.SECOND, 59, 2);
+		}
+		if (fieldsCount > DateTimeBounds.MILLISECOND && millisecond_numberSpinEdit == null) {
+			secondMillisecondDelimiter_textView = createDelimiter(".");
+			millisecond_numberSpinEdit = createField(DateTimeBounds.MILLISECOND, 999, 3);
+			millisecond_numberSpinEdit.setValueConverter(new NumberSpinEdit.MillisecondValueConverter());
+		}
+		
+		if (second_numberSpinEdit != null) {
+			int visibility = fieldsCount > DateTimeBounds.SECOND ? View.VISIBLE : View.GONE;
+			minuteSecondDelimiter_textView.setVisibility(visibility);
+			second_numberSpinEdit.setVisibility(visibility);
+		}
+		if (millisecond_numberSpinEdit != null) {
+			int visibility = fieldsCount > DateTimeBounds.MILLISECOND ? View.VISIBLE : View.GONE;
+			secondMillisecondDelimiter_textView.setVisibility(visibility);
+			millisecond_numberSpinEdit.setVisibility(visibility);
+		}
+		
+		bounds.setFieldsCount(fieldsCount);
+	}
+	
+	private TextView createDelimiter(String text) {
+		LayoutInflater layoutInflater = (LayoutInflater) getContext().getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+		TextView delimiter = (TextView)layoutInflater.inflate(R.layout.view_time_delimiter, this, false);
+		delimiter.setText(text);
+		addView(delimiter);
+		timeRow = appendToRow(timeRow, delimiter);
+		return delimiter;
+	}
+	
+	/**
+	 * Creates a sub-minute field looking the same way as the minute field does
+	 */
+	private NumberSpinEdit createField(int index, int maxValue, int ems) {
+		boolean lightweight = minute_numberSpinEdit.isLightweight();
+		NumberSpinEditPool pool = NumberSpinEditPool.getInstance();
+		NumberSpinEdit field = null;
+		if (pool != null && !isInEditMode()) {
+			field = pool.acquire(lightweight);
+		}
+		if (field == null) {
+			// No pool or it's empty
+			field = new NumberSpinEdit(getContext(), lightweight);
+		}
+		
+		field.setEms(ems);
+		field.setRange(0, maxValue);
+		field.setValue(0);
+		field.setWheel(minute_numberSpinEdit.isWheel());
+		field.setStep(fieldSteps[index]);
+		field.setValueSkipper(minute_numberSpinEdit.getValueSkipper());
+		if (!isInEditMode()) {
+			field.setOnValueChangeListener(this);
+		}
+		
+		addView(field);
+		timeRow = appendToRow(timeRow, field);
+		fields[index] = field;
+		return field;
+	}
+	
+	private static View[] appendToRow(View[] row, View view) {
+		View[] newRow = new View[row.length + 1];
+		System.arraycopy(row, 0, newRow, 0, row.length);
+		newRow[row.length] = view;
+		return newRow;
+	}
+	
+	/**
+	 * Sets how much a button press changes the fields (i.e. 15 for the minutes makes 
+	 * the quarter-hour slots). The values are kept on the multiples of the step, 
+	 * see {@link NumberSpinEdit#setStepAligned(boolean)}.
+	 * @param fieldFlags a combination of the <code>FIELD_*</code> flags
+	 */
+	public void setFieldStep(int fieldFlags, int step) {
+		for (int i = 0; i < fields.length; i++) {
+			if ((fieldFlags & (1 << i)) == 0) {
+				continue;
+			}
+			if (fields[i] != null) {
+				fields[i].setStep(step);
+			}
+			fieldSteps[i] = step;
+		}
+	}
+	
+	/**
+	 * @param field one of the <code>FIELD_*</code> flags
+	 */
+	public int getFieldStep(int field) {
+		for (int i = 0; i < fieldSteps.length; i++) {
+			if (field == 1 << i) {
+				return fieldSteps[i];
+			}
+		}
+		throw new IllegalArgumentException("Unknown field " + field);
+	}
+	
+	public boolean isVertical() {
+		return vertical;
+	}
+	
+	/**
+	 * Puts the time row under the date row instead of the right side of it
+	 */
+	public void setVertical(boolean vertical) {
+		this.vertical = vertical;
+		requestLayout();
+	}
+	
+	/**
+	 * Measures the visible views of the row
+	 * @return the row width
+	 */
+	private int measureRow(View[] row, int widthMeasureSpec, int heightMeasureSpec) {
+		int width = 0;
+		for (int i = 0; i < row.length; i++) {
+			View child = row[i];
+			if (child.getVisibility() != GONE) {
+				measureChild(child, widthMeasureSpec, heightMeasureSpec);
+				width += child.getMeasuredWidth();
+			}
+		}
+		return width;
+	}
+	
+	private static int getRowHeight(View[] row) {
+		int height = 0;
+		for (int i = 0; i < row.length; i++) {
+			View child = row[i];
+			if (child.getVisibility() != GONE) {
+				height = Math.max(height, child.getMeasuredHeight());
+			}
+		}
+		return height;
+	}
+	
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		// Each child is measured exactly once, there are no nested layouts to measure them again
+		int dateWidth = measureRow(dateRow, widthMeasureSpec, heightMeasureSpec);
+		int timeWidth = measureRow(timeRow, widthMeasureSpec, heightMeasureSpec);
+		int dateHeight = getRowHeight(dateRow);
+		int timeHeight = getRowHeight(timeRow);
+		int space = dateWidth > 0 && timeWidth > 0 ? spaceDateTime : 0;
+		
+		int width, height;
+		if (vertical) {
+			width = Math.max(dateWidth, timeWidth);
+			height = dateHeight + space + timeHeight;
+		} else {
+			width = dateWidth + space + timeWidth;
+			height = Math.max(dateHeight, timeHeight);
+		}
+		
+		width = Math.max(width + getPaddingLeft() + getPaddingRight(), getSuggestedMinimumWidth());
+		height = Math.max(height + getPaddingTop() + getPaddingBottom(), getSuggestedMinimumHeight());
+		setMeasuredDimension(resolveSize(width, widthMeasureSpec), resolveSize(height, heightMeasureSpec));
+	}
+	
+	/**
+	 * Places the visible views of the row one after another. 
+	 * The delimiters are aligned to the baseline of the field before them.
+	 */
+	private void layoutRow(View[] row, int left, int top) {
+		for (int i = 0; i < row.length; i++) {
+			View child = row[i];
+			if (child.getVisibility() == GONE) {
+				continue;
+			}
+			
+			int childTop = top;
+			if (child instanceof TextView && i > 0 && row[i - 1].getVisibility() != GONE) {
+				// The field is laid out already, so its baseline is known
+				View field = row[i - 1];
+				int fieldBaseline = field.getBaseline();
+				int delimiterBaseline = child.getBaseline();
+				if (fieldBaseline >= 0 && delimiterBaseline >= 0) {
+					childTop = field.getTop() + fieldBaseline - delimiterBaseline;
+				}
+			}
+			
+			child.layout(left, childTop, left + child.getMeasuredWidth(), childTop + child.getMeasuredHeight());
+			left += child.getMeasuredWidth();
+		}
+	}
+	
+	private static int getRowWidth(View[] row) {
+		int width = 0;
+		for (int i = 0; i < row.length; i++) {
+			View child = row[i];
+			if (child.getVisibility() != GONE) {
+				width += child.getMeasuredWidth();
+			}
+		}
+		return width;
+	}
+	
+	@Override
+	protected void onLayout(boolean changed, int l, int t, int r, int b) {
+		int contentWidth = r - l - getPaddingLeft() - getPaddingRight();
+		int contentHeight = b - t - getPaddingTop() - getPaddingBottom();
+		
+		int dateWidth = getRowWidth(dateRow);
+		int timeWidth = getRowWidth(timeRow);
+		int dateHeight = getRowHeight(dateRow);
+		int timeHeight = getRowHeight(timeRow);
+		int space = dateWidth > 0 && timeWidth > 0 ? spaceDateTime : 0;
+		
+		if (vertical) {
+			// The rows are centered horizontally
+			int top = getPaddingTop();
+			layoutRow(dateRow, getPaddingLeft() + (contentWidth - dateWidth) / 2, top);
+			top += dateHeight + space;
+			layoutRow(timeRow, getPaddingLeft() + (contentWidth - timeWidth) / 2, top);
+		} else {
+			// The rows are centered vertically
+			int left = getPaddingLeft();
+			layoutRow(dateRow, left, getPaddingTop() + (contentHeight - dateHeight) / 2);
+			left += dateWidth + space;
+			layoutRow(timeRow, left, getPaddingTop() + (contentHeight - timeHeight) / 2);
+		}
 	}
 
-	public Calendar getValue() {
-		Calendar value = Calendar.getInstance();
-
-		value.set(Calendar.YEAR, year_numberSpinEdit.getValue());
-		value.set(Calendar.MONTH, month_numberSpinEdit.getValue() - 1);
-		value.set(Calendar.DAY_OF_MONTH, day_numberSpinEdit.getValue());
-		value.set(Calendar.HOUR_OF_DAY, hour_numberSpinEdit.getValue());
-		value.set(Calendar.MINUTE, minute_numberSpinEdit.getValue());
+	/**
+	 * @return the value in milliseconds since the epoch (the seconds and the milliseconds 
+	 * are zero unless their fields are shown). The text still being typed into a field 
+	 * isn't taken, it's committed when the field loses focus, on the IME action, 
+	 * on a button tap and by the value setters.
+	 */
+	public long getValueMillis() {
+		int fieldsCount = bounds.getFieldsCount();
+		for (int i = 0; i < fieldsCount; i++) {
+			valueFields[i] = getFieldValue(i);
+		}
+		return DateTimeClampEngine.toMillis(calendarBackend, valueFields, fieldsCount);
+	}
+	
+	/**
+	 * Commits the values typed into the fields before the value is rewritten, 
+	 * so that the typed text isn't lost
+	 */
+	private void commitEdits() {
+		for (int i = 0; i < fields.length; i++) {
+			if (fields[i] != null) {
+				fields[i].commitEdit();
+			}
+		}
+	}
+	
+	/**
+	 * @return the value of the field (of the DateTimeBounds order) even if it hasn't been created
+	 */
+	private int getFieldValue(int field) {
+		return fields[field] != null ? fields[field].getValue() : absentValues[field];
+	}
+	
+	private void setFieldValue(int field, int value) {
+		if (fields[field] != null) {
+			fields[field].setValue(value);
+		} else {
+			absentValues[field] = value;
+		}
+	}
+	
+	
+	public CalendarBackend getCalendarBackend() {
+		return calendarBackend;
+	}
+	
+	/**
+	 * Replaces the date arithmetic implementation. The value and the bounds are kept.
+	 * By default {@link ArithmeticCalendarBackend} is used.
+	 */
+	public void setCalendarBackend(CalendarBackend calendarBackend) {
+		commitEdits();
+		long value = getValueMillis();
+		this.calendarBackend = calendarBackend;
+		updateConstraint();
+		updateBounds();
+		setValueMillis(value);
+	}
+	
+	public TimeZone getTimeZone() {
+		return calendarBackend.getTimeZone();
+	}
+	
+	/**
+	 * Shows the value in the given time zone instead of the default one. The value 
+	 * (the moment in milliseconds since the epoch) and the bounds are kept, the fields change.
+	 * 
+	 * The wall clock times skipped by the zone's transitions (when the clocks 
+	 * are moved forward) can't be chosen.
+	 * @param timeZone the zone or <code>null</code> to follow the default one
+	 */
+	public void setTimeZone(TimeZone timeZone) {
+		timeZoneExplicit = timeZone != null;
+		if (timeZone == null) {
+			timeZone = TimeZone.getDefault();
+		}
 		
-		return value;
+		commitEdits();
+		long value = getValueMillis();
+		calendarBackend.setTimeZone(timeZone);
+		updateConstraint();
+		updateBounds();
+		setValueMillis(value);
+	}
+	
+	/**
+	 * Sets the value in milliseconds since the epoch. The seconds and the milliseconds 
+	 * are dropped unless their fields are shown
+	 */
+	public void setValueMillis(long value) {
+		commitEdits();
+		beginFieldsUpdate();
+		try {
+			setFields(value);
+			checkTimeBounds();
+		} finally {
+			endFieldsUpdate();
+		}
+	}
+	
+	/**
+	 * @return the calendar in the view's time zone, so that its fields are the ones shown
+	 */
+	private Calendar toCalendar(long millis) {
+		if (millis == DateTimeChoiceModel.NO_BOUND) {
+			return null;
+		}
+		
+		Calendar calendar = Calendar.getInstance(getTimeZone());
+		calendar.setTimeInMillis(millis);
+		return calendar;
+	}
+	
+	/**
+	 * Consider {@link #getValueMillis()} in the frequently called code, 
+	 * it doesn't allocate a calendar
+	 */
+	public Calendar getValue() {
+		return toCalendar(getValueMillis());
 	}
 	
 	public void setValue(Calendar value) {
-		year_numberSpinEdit.setValue(value.get(Calendar.YEAR));
-		month_numberSpinEdit.setValue(value.get(Calendar.MONTH) + 1);
-		day_numberSpinEdit.setValue(value.get(Calendar.DAY_OF_MONTH));
-		hour_numberSpinEdit.setValue(value.get(Calendar.HOUR_OF_DAY));
-		minute_numberSpinEdit.setValue(value.get(Calendar.MINUTE));
+		setValueMillis(value.getTimeInMillis());
+	}
+	
+	/**
+	 * Sets the value typed at once, like "2013-08-15 02:44", "15 Aug 2:44" or "8/15/2013 2:44 PM"
+	 * (see {@link DateTimeTextParser} for the accepted forms). The fields missing in the text 
+	 * keep their values. All the fields are changed together: the bounds are checked once 
+	 * and the change is reported once, as if the user had spun the fields.
+	 * @return <code>false</code> if the text isn't understood, the value isn't changed then
+	 */
+	public boolean setValueText(CharSequence text) {
+		if (textParser == null) {
+			if (monthValueConverter == null) {
+				monthValueConverter = new NumberSpinEdit.MonthValueConverter(getContext());
+			}
+			textParser = new DateTimeTextParser(getResources().getConfiguration().locale, monthValueConverter);
+		}
 		
-		checkTimeBounds();
+		// The fields missing in the text keep the values typed into them
+		commitEdits();
+		int fieldsCount = bounds.getFieldsCount();
+		for (int i = 0; i < DateTimeBounds.FIELDS_COUNT; i++) {
+			scratchFields[i] = i < fieldsCount ? getFieldValue(i) : 0;
+		}
+		int parsedFields = textParser.parse(text, scratchFields);
+		if (parsedFields == 0) {
+			return false;
+		}
+		
+		int changedFields = 0;
+		beginFieldsUpdate();
+		try {
+			for (int i = 0; i < fieldsCount; i++) {
+				if (getFieldValue(i) != scratchFields[i]) {
+					setFieldValue(i, scratchFields[i]);
+					changedFields |= 1 << i;
+				}
+			}
+			changedFields |= checkTimeBounds();
+		} finally {
+			endFieldsUpdate();
+		}
+		
+		if (changedFields != 0) {
+			onUserChanged(changedFields);
+		}
+		return true;
+	}
+	
+	/**
+	 * Lets the user type the whole value into the text box at once instead of 
+	 * typing the fields one by one. The text is taken by {@link #setValueText(CharSequence)} 
+	 * on the IME action or Enter, so the fields are changed together and reported once. 
+	 * The text which isn't understood is marked with an error and left for correcting.
+	 * @param fastEntryView the text box (i.e. a single-line <code>EditText</code>) 
+	 * or <code>null</code> to detach the current one
+	 */
+	public void setFastEntryView(TextView fastEntryView) {
+		if (this.fastEntryView != null) {
+			this.fastEntryView.setOnEditorActionListener(null);
+		}
+		this.fastEntryView = fastEntryView;
+		if (fastEntryView != null) {
+			fastEntryView.setOnEditorActionListener(fastEntryListener);
+		}
+	}
+	
+	public TextView getFastEntryView() {
+		return fastEntryView;
+	}
+	
+	private void setFields(long value) {
+		DateTimeClampEngine.toFields(calendarBackend, value, scratchFields);
+		int fieldsCount = bounds.getFieldsCount();
+		for (int i = 0; i < fieldsCount; i++) {
+			setFieldValue(i, scratchFields[i]);
+		}
+	}
+	
+	/**
+	 * Shows the value and the bounds of the model. Until {@link #unbind()} is called, 
+	 * the changes made by the user are reported to the {@link OnModelChangeListener}.
+	 * 
+	 * Binding doesn't inflate anything or register any listeners, so the same view 
+	 * can be rebound to other models many times (i.e. in a list).
+	 */
+	public void bind(DateTimeChoiceModel model) {
+		boundModel = model;
+		minValue = model.getMinValue();
+		maxValue = model.getMaxValue();
+		updateBounds();
+		
+		beginFieldsUpdate();
+		try {
+			setFields(model.getValue());
+			checkTimeBounds();
+		} finally {
+			endFieldsUpdate();
+		}
+	}
+	
+	/**
+	 * Detaches the view from the model it was bound to. The view keeps showing the value.
+	 */
+	public void unbind() {
+		boundModel = null;
+	}
+	
+	/**
+	 * @return the model the view is bound to or <code>null</code>
+	 */
+	public DateTimeChoiceModel getModel() {
+		return boundModel;
+	}
+	
+	public void setOnModelChangeListener(OnModelChangeListener modelChangeListener) {
+		this.modelChangeListener = modelChangeListener;
+	}
+	
+	/**
+	 * Batches the changes of all the fields, so that each of them is redrawn only once
+	 */
+	private void beginFieldsUpdate() {
+		int fieldsCount = bounds.getFieldsCount();
+		for (int i = 0; i < fieldsCount; i++) {
+			if (fields[i] != null) {
+				fields[i].beginUpdate();
+			}
+		}
+	}
+	
+	private void endFieldsUpdate() {
+		int fieldsCount = bounds.getFieldsCount();
+		for (int i = 0; i < fieldsCount; i++) {
+			if (fields[i] != null) {
+				fields[i].endUpdate();
+			}
+		}
 	}
 	
 	@Override
@@ -183,9 +912,57 @@ public class DateTimeChoice extends LinearLayout implements NumberSpinEdit.OnVal
 	
 	}
 	
+	/**
+	 * @return the index of the field in the DateTimeBounds order or -1
+	 */
+	private int getFieldIndex(NumberSpinEdit view) {
+		for (int i = 0; i < fields.length; i++) {
+			if (fields[i] == view) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
 	@Override
 	public void onChanged(NumberSpinEdit view) {
-		checkTimeBounds();
+		int field = getFieldIndex(view);
+		int changedFields = checkTimeBounds(field);
+		if (field >= 0) {
+			changedFields |= 1 << field;
+		}
+		onUserChanged(changedFields);
+	}
+	
+	/**
+	 * Reports the user's change to the listeners, the linked range and the bound model
+	 */
+	private void onUserChanged(int changedFields) {
+		postDateTimeChanged(changedFields);
+		
+		if (rangeController != null) {
+			rangeController.onPickerChanged(this);
+		}
+		
+		updateBoundModel();
+	}
+	
+	/**
+	 * Reports the value clamped by the linked range after the user's change of the other view
+	 */
+	void onRangeClamped(int changedFields) {
+		postDateTimeChanged(changedFields);
+		updateBoundModel();
+	}
+	
+	private void updateBoundModel() {
+		if (boundModel != null) {
+			DateTimeChoiceModel oldModel = boundModel;
+			boundModel = oldModel.withValue(getValueMillis());
+			if (modelChangeListener != null && boundModel != oldModel) {
+				modelChangeListener.onModelChanged(this, oldModel, boundModel);
+			}
+		}
 	}
 
 	@Override
@@ -194,19 +971,55 @@ public class DateTimeChoice extends LinearLayout implements NumberSpinEdit.OnVal
 	}
 	
 	@Override
-	protected Parcelable onSaveInstanceState() {
-		hour_numberSpinEdit.setId(NO_ID);
-		minute_numberSpinEdit.setId(NO_ID);
-		day_numberSpinEdit.setId(NO_ID);
-		month_numberSpinEdit.setId(NO_ID);
-		year_numberSpinEdit.setId(NO_ID);
-
-		date_relativeLayout.setId(NO_ID);
+	public void onValueUpdated(NumberSpinEdit view) {
 		
+	}
+	
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+		
+		// The default time zone could have been changed while the view was detached
+		TimeZone timeZone = TimeZone.getDefault();
+		if (!timeZoneExplicit && !timeZone.getID().equals(calendarBackend.getTimeZone().getID())) {
+			calendarBackend.setTimeZone(timeZone);
+			updateConstraint();
+			updateBounds();
+			checkTimeBounds();
+		}
+	}
+	
+	@Override
+	protected void onConfigurationChanged(Configuration newConfig) {
+		super.onConfigurationChanged(newConfig);
+		
+		// The month names could have been changed with the locale
+		if (monthValueConverter != null) {
+			monthValueConverter.invalidate();
+		}
+		if (month_numberSpinEdit != null) {
+			month_numberSpinEdit.setValueConverter(monthValueConverter);
+		}
+		textParser = null;
+	}
+	
+	@Override
+	protected void dispatchSaveInstanceState(SparseArray<Parcelable> container) {
+		// The fields are restored from the picker's own state
+		dispatchFreezeSelfOnly(container);
+	}
+	
+	@Override
+	protected void dispatchRestoreInstanceState(SparseArray<Parcelable> container) {
+		dispatchThawSelfOnly(container);
+	}
+	
+	@Override
+	protected Parcelable onSaveInstanceState() {
 	    Parcelable superState = super.onSaveInstanceState();
 	    SavedState ss = new SavedState(superState);
 
-	    ss.setValue(getValue());
+	    ss.model = new DateTimeChoiceModel(getValueMillis(), minValue, maxValue);
 
 	    return ss;
 	}
@@ -220,108 +1033,242 @@ public class DateTimeChoice extends LinearLayout implements NumberSpinEdit.OnVal
 
 		SavedState ss = (SavedState) state;
 		super.onRestoreInstanceState(ss.getSuperState());
+		if (ss.model == null) {
+			return;
+		}
 
-		setValue(ss.getValue());
+		minValue = ss.model.getMinValue();
+		maxValue = ss.model.getMaxValue();
+		updateBounds();
+		setValueMillis(ss.model.getValue());
 	}
 
 	public Calendar getMinValue() {
-		return minValue;
+		return toCalendar(minValue);
 	}
 
 	/**
-	 * 
-	 * @param month the month (January = 1, February = 2, ...)
-	 * @param year
-	 * @return
-	 */
-	private int getHighestDayInMonth(int month, int year) {
-		Calendar curCal = Calendar.getInstance();
-		curCal.clear();
-		curCal.set(Calendar.DAY_OF_MONTH, 1);
-		curCal.set(Calendar.MONTH, month - 1);
-		curCal.set(Calendar.YEAR, year);
-		
-		return curCal.getActualMaximum(Calendar.DAY_OF_MONTH);
-	}
-	
-	private void checkTimeBounds() {
-		Calendar curvalue = getValue();
-		
-		int lowerYear = 1970;
-		int lowerMonth = 1;
-		int lowerDay = 1;
-		int lowerHour = 0;
-		int lowerMinute = 0;
-		
-		int higherYear = 2100;
-		int higherMonth = 12;
-		int higherDay = getHighestDayInMonth(month_numberSpinEdit.getValue(), year_numberSpinEdit.getValue());
-		int higherHour = 23;
-		int higherMinute = 59;
-		
-		if (minValue != null) {
-			lowerYear = minValue.get(Calendar.YEAR);
-			if (curvalue.get(Calendar.YEAR) <= lowerYear) {
-				lowerMonth = minValue.get(Calendar.MONTH) + 1;
-				
-				if (curvalue.get(Calendar.MONTH) + 1 <= lowerMonth) {
-					lowerDay = minValue.get(Calendar.DAY_OF_MONTH);
-					
-					if (curvalue.get(Calendar.DAY_OF_MONTH) <= lowerDay) {
-						lowerHour = minValue.get(Calendar.HOUR_OF_DAY);
-						
-						if (curvalue.get(Calendar.HOUR_OF_DAY) <= lowerHour) {
-							lowerMinute = minValue.get(Calendar.MINUTE);
-						}
+	 * @return the fields which values have been clamped, a combination of the <code>FIELD_*</code> flags
+	 */
+	private int checkTimeBounds() {
+		return checkTimeBounds(-1);
+	}
+	
+	/**
+	 * @param keptField the field the user has changed, it keeps its value if the constraint allows
+	 * @return the fields which have been clamped
+	 */
+	private int checkTimeBounds(int keptField) {
+		long metricsToken = PickerMetrics.begin(PickerMetrics.SECTION_CHECK_TIME_BOUNDS);
+		int fieldsCount = bounds.getFieldsCount();
+		for (int i = 0; i < fieldsCount; i++) {
+			scratchFields[i] = getFieldValue(i);
+		}
+		bounds.compute(scratchFields, keptField);
+		
+		int clampedFields = 0;
+		
+		beginFieldsUpdate();
+		try {
+			// Pushing only the changes, so that the untouched fields aren't redrawn
+			for (int i = 0; i < fieldsCount; i++) {
+				NumberSpinEdit field = fields[i];
+				if (field == null) {
+					// The field isn't created, it has no range to update
+					if (absentValues[i] != bounds.getValue(i)) {
+						absentValues[i] = bounds.getValue(i);
+						clampedFields |= 1 << i;
 					}
+					continue;
+				}
+				
+				int lower = bounds.getLower(i);
+				int higher = bounds.getHigher(i);
+				
+				if (field.getMinValue() != lower || field.getMaxValue() != higher) {
+					field.setRange(lower, higher);
+				}
+				if (field.getValue() != bounds.getValue(i)) {
+					field.setValue(bounds.getValue(i));
+					clampedFields |= 1 << i;
 				}
 			}
+		} finally {
+			endFieldsUpdate();
 		}
 		
-		if (maxValue != null) {
-			higherYear = maxValue.get(Calendar.YEAR);
-			if (curvalue.get(Calendar.YEAR) >= higherYear) {
-				higherMonth = maxValue.get(Calendar.MONTH) + 1;
-				
-				if (curvalue.get(Calendar.MONTH) + 1 >= higherMonth) {
-					higherDay = maxValue.get(Calendar.DAY_OF_MONTH);
-					
-					if (curvalue.get(Calendar.DAY_OF_MONTH) >= higherDay) {
-						higherHour = maxValue.get(Calendar.HOUR_OF_DAY);
-						
-						if (curvalue.get(Calendar.HOUR_OF_DAY) >= higherHour) {
-							higherMinute = maxValue.get(Calendar.MINUTE);
-						}
-					}
-				}
-			}		
+		PickerMetrics.end(PickerMetrics.SECTION_CHECK_TIME_BOUNDS, metricsToken);
+		return clampedFields;
+	}
+	
+	private void postDateTimeChanged(int changedFields) {
+		if (dateTimeChangedListener == null) {
+			return;
 		}
 		
-		year_numberSpinEdit.setMinValue(lowerYear);
-		month_numberSpinEdit.setMinValue(lowerMonth);
-		day_numberSpinEdit.setMinValue(lowerDay);
-		hour_numberSpinEdit.setMinValue(lowerHour);
-		minute_numberSpinEdit.setMinValue(lowerMinute);
-
-		year_numberSpinEdit.setMaxValue(higherYear);
-		month_numberSpinEdit.setMaxValue(higherMonth);
-		day_numberSpinEdit.setMaxValue(higherDay);
-		hour_numberSpinEdit.setMaxValue(higherHour);
-		minute_numberSpinEdit.setMaxValue(higherMinute);
-
+		pendingChangedFields |= changedFields;
+		if (notificationQuietPeriod > 0) {
+			// Waiting for the user to stop
+			removeCallbacks(notificationRunnable);
+			postDelayed(notificationRunnable, notificationQuietPeriod);
+			notificationPosted = true;
+		} else if (!notificationPosted) {
+			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+				postOnAnimation(notificationRunnable);
+			} else {
+				post(notificationRunnable);
+			}
+			notificationPosted = true;
+		}
+	}
+	
+	public void setOnDateTimeChangedListener(OnDateTimeChangedListener dateTimeChangedListener) {
+		this.dateTimeChangedListener = dateTimeChangedListener;
+	}
+	
+	public long getNotificationQuietPeriod() {
+		return notificationQuietPeriod;
+	}
+	
+	/**
+	 * Sets how long the value should stay unchanged before the {@link OnDateTimeChangedListener}
+	 * is notified. With the zero period (the default one) the listener is notified once per frame.
+	 */
+	public void setNotificationQuietPeriod(long notificationQuietPeriod) {
+		this.notificationQuietPeriod = notificationQuietPeriod;
+	}
+	
+	/**
+	 * Passes the lowest and the highest values to the bounds calculator
+	 */
+	private void updateBounds() {
+		if (minValue != DateTimeChoiceModel.NO_BOUND) {
+			DateTimeClampEngine.toFields(calendarBackend, minValue, scratchFields);
+			bounds.setLowest(scratchFields);
+		} else {
+			bounds.clearLowest();
+		}
+		
+		if (maxValue != DateTimeChoiceModel.NO_BOUND) {
+			DateTimeClampEngine.toFields(calendarBackend, maxValue, scratchFields);
+			bounds.setHighest(scratchFields);
+		} else {
+			bounds.clearHighest();
+		}
+		
+		// The gaps are excluded only if the range has any
+		if (DaylightGapConstraint.isNeeded(getTransitions(), minValue, maxValue) != (gapConstraint != null)) {
+			updateConstraint();
+		}
+	}
+	
+	public DateTimeConstraint getConstraint() {
+		return constraint;
+	}
+	
+	/**
+	 * Allows only the values the constraint allows (within the lowest and the highest ones). 
+	 * The buttons jump over the values at which nothing is allowed.
+	 * @param constraint the rule or <code>null</code> to allow everything
+	 */
+	public void setConstraint(DateTimeConstraint constraint) {
+		this.constraint = constraint;
+		updateConstraint();
+		checkTimeBounds();
+	}
+	
+	/**
+	 * Passes the user's constraint along with the daylight saving gaps of the time zone 
+	 * to the bounds calculator
+	 */
+	private void updateConstraint() {
+		ZoneTransitionTable transitions = getTransitions();
+		if (!DaylightGapConstraint.isNeeded(transitions, minValue, maxValue)) {
+			gapConstraint = null;
+		} else if (gapConstraint == null || gapConstraint.getTransitions() != transitions) {
+			gapConstraint = new DaylightGapConstraint(transitions);
+		}
+		
+		DateTimeConstraint effectiveConstraint = DaylightGapConstraint.intersect(constraint, gapConstraint);
+		
+		bounds.setConstraint(effectiveConstraint);
+		for (int i = 0; i < fields.length; i++) {
+			if (fields[i] != null) {
+				fields[i].setValueSkipper(effectiveConstraint != null ? fieldSkipper : null);
+			}
+		}
+	}
+	
+	/**
+	 * @return the transition table of the zone, the one of {@link ArithmeticCalendarBackend} 
+	 * if it's used, so that the offsets and the gaps share the scanned years
+	 */
+	private ZoneTransitionTable getTransitions() {
+		if (calendarBackend instanceof ArithmeticCalendarBackend) {
+			return ((ArithmeticCalendarBackend)calendarBackend).getTransitions();
+		}
+		
+		TimeZone timeZone = calendarBackend.getTimeZone();
+		if (ownTransitions == null || ownTransitions.getTimeZone() != timeZone) {
+			ownTransitions = new ZoneTransitionTable(timeZone);
+		}
+		return ownTransitions;
 	}
 	
 	public void setMinValue(Calendar minValue) {
+		setMinValueMillis(minValue != null ? minValue.getTimeInMillis() : DateTimeChoiceModel.NO_BOUND);
+	};
+
+	/**
+	 * @return the lowest value in milliseconds since the epoch or {@link DateTimeChoiceModel#NO_BOUND}
+	 */
+	public long getMinValueMillis() {
+		return minValue;
+	}
+
+	/**
+	 * @param minValue the lowest value in milliseconds since the epoch or {@link DateTimeChoiceModel#NO_BOUND}
+	 */
+	public void setMinValueMillis(long minValue) {
 		this.minValue = minValue;
+		updateBounds();
 		checkTimeBounds();
-	};
+	}
+
+	/**
+	 * Sets both the lowest and the highest values at once, the fields are clamped only once
+	 * @param minValue the lowest value in milliseconds since the epoch or {@link DateTimeChoiceModel#NO_BOUND}
+	 * @param maxValue the highest value in milliseconds since the epoch or {@link DateTimeChoiceModel#NO_BOUND}
+	 * @return the fields which values have been clamped, a combination of the <code>FIELD_*</code> flags
+	 */
+	public int setBoundsMillis(long minValue, long maxValue) {
+		this.minValue = minValue;
+		this.maxValue = maxValue;
+		updateBounds();
+		return checkTimeBounds();
+	}
 
 	public Calendar getMaxValue() {
-		return maxValue;
+		return toCalendar(maxValue);
 	}
 
 	public void setMaxValue(Calendar maxValue) {
+		setMaxValueMillis(maxValue != null ? maxValue.getTimeInMillis() : DateTimeChoiceModel.NO_BOUND);
+	}
+
+	/**
+	 * @return the highest value in milliseconds since the epoch or {@link DateTimeChoiceModel#NO_BOUND}
+	 */
+	public long getMaxValueMillis() {
+		return maxValue;
+	}
+
+	/**
+	 * @param maxValue the highest value in milliseconds since the epoch or {@link DateTimeChoiceModel#NO_BOUND}
+	 */
+	public void setMaxValueMillis(long maxValue) {
 		this.maxValue = maxValue;
+		updateBounds();
 		checkTimeBounds();
 	}
 	
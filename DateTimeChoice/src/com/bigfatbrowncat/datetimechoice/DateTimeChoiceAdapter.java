@@ -0,0 +1,96 @@
+package com.bigfatbrowncat.datetimechoice;
+
+import java.util.List;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.BaseAdapter;
+
+/**
+ * List adapter showing a {@link DateTimeChoice} per model.
+ * 
+ * The views are created once and then only rebound to other models when the list 
+ * recycles them, so scrolling inflates nothing and registers no listeners. 
+ * The changes made by the user are written back into the models list.
+ * 
+ * Set the adapter as the list's {@link AbsListView.RecyclerListener} to unbind 
+ * the views moved to the scrap heap.
+ */
+public class DateTimeChoiceAdapter extends BaseAdapter implements DateTimeChoice.OnModelChangeListener, 
+                                                                  AbsListView.RecyclerListener {
+	private final Context context;
+	private final List<DateTimeChoiceModel> models;
+	
+	public DateTimeChoiceAdapter(Context context, List<DateTimeChoiceModel> models) {
+		this.context = context;
+		this.models = models;
+	}
+	
+	public List<DateTimeChoiceModel> getModels() {
+		return models;
+	}
+	
+	@Override
+	public int getCount() {
+		return models.size();
+	}
+
+	@Override
+	public DateTimeChoiceModel getItem(int position) {
+		return models.get(position);
+	}
+
+	@Override
+	public long getItemId(int position) {
+		return position;
+	}
+
+	@Override
+	public View getView(int position, View convertView, ViewGroup parent) {
+		DateTimeChoice view;
+		if (convertView instanceof DateTimeChoice) {
+			view = (DateTimeChoice) convertView;
+		} else {
+			view = createView(parent);
+			view.setOnModelChangeListener(this);
+		}
+		
+		view.bind(models.get(position));
+		view.setTag(R.id.adapterPosition_tag, position);
+		return view;
+	}
+	
+	/**
+	 * Creates a new row view. Override it to customize the picker.
+	 */
+	protected DateTimeChoice createView(ViewGroup parent) {
+		return new DateTimeChoice(context);
+	}
+
+	@Override
+	public void onMovedToScrapHeap(View view) {
+		if (view instanceof DateTimeChoice) {
+			((DateTimeChoice) view).unbind();
+		}
+	}
+
+	@Override
+	public void onModelChanged(DateTimeChoice view, DateTimeChoiceModel oldModel, DateTimeChoiceModel newModel) {
+		// The models are compared by identity, the list may contain equal ones
+		Integer position = (Integer)view.getTag(R.id.adapterPosition_tag);
+		if (position != null && position < models.size() && models.get(position) == oldModel) {
+			models.set(position, newModel);
+			return;
+		}
+		
+		// The list has been changed since the view was bound
+		for (int i = 0; i < models.size(); i++) {
+			if (models.get(i) == oldModel) {
+				models.set(i, newModel);
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package com.bigfatbrowncat.datetimechoice;
+
+/**
+ * Immutable state of a {@link DateTimeChoice}: the value and the optional bounds 
+ * in milliseconds since the epoch.
+ * 
+ * A model is bound to a view with {@link DateTimeChoice#bind(DateTimeChoiceModel)}, 
+ * that lets a few views be recycled for a long list of models.
+ */
+public final class DateTimeChoiceModel {
+	/**
+	 * Used instead of the lowest or the highest value when there is no bound
+	 */
+	public static final long NO_BOUND = Long.MIN_VALUE;
+	
+	private final long value;
+	private final long minValue;
+	private final long maxValue;
+	
+	public DateTimeChoiceModel(long value) {
+		this(value, NO_BOUND, NO_BOUND);
+	}
+	
+	/**
+	 * @param value the value in milliseconds since the epoch
+	 * @param minValue the lowest value or {@link #NO_BOUND}
+	 * @param maxValue the highest value or {@link #NO_BOUND}
+	 */
+	public DateTimeChoiceModel(long value, long minValue, long maxValue) {
+		this.value = value;
+		this.minValue = minValue;
+		this.maxValue = maxValue;
+	}
+	
+	public long getValue() {
+		return value;
+	}
+	
+	public long getMinValue() {
+		return minValue;
+	}
+	
+	public long getMaxValue() {
+		return maxValue;
+	}
+	
+	public boolean hasMinValue() {
+		return minValue != NO_BOUND;
+	}
+	
+	public boolean hasMaxValue() {
+		return maxValue != NO_BOUND;
+	}
+	
+	/**
+	 * @return the model with the same bounds and the given value 
+	 * (this one if the value is the same)
+	 */
+	public DateTimeChoiceModel withValue(long value) {
+		if (value == this.value) {
+			return this;
+		}
+		return new DateTimeChoiceModel(value, minValue, maxValue);
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof DateTimeChoiceModel)) return false;
+		
+		DateTimeChoiceModel other = (DateTimeChoiceModel) o;
+		return value == other.value && minValue == other.minValue && maxValue == other.maxValue;
+	}
+	
+	@Override
+	public int hashCode() {
+		int result = (int)(value ^ (value >>> 32));
+		result = 31 * result + (int)(minValue ^ (minValue >>> 32));
+		result = 31 * result + (int)(maxValue ^ (maxValue >>> 32));
+		return result;
+	}
+}
@@ -0,0 +1,325 @@
+package com.bigfatbrowncat.datetimechoice;
+
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Clamps the values in milliseconds since the epoch the same way {@link DateTimeChoice} does:
+ * field by field against the lowest and the highest values, the month lengths,
+ * the constraint and the daylight saving gaps of the time zone. A value passed through
+ * the engine is the value the view would show after {@link DateTimeChoice#setValueMillis(long)}.
+ *
+ * The engine doesn't depend on Android, so it can normalize the imported values in bulk.
+ * The large arrays are split into chunks clamped in parallel on a shared thread pool.
+ *
+ * The engine isn't thread safe, but the parallel clamping uses its own state for each task.
+ * The constraint is shared by the tasks, so it should be immutable
+ * (as {@link IntervalSetConstraint} and {@link IntersectionConstraint} are).
+ */
+public final class DateTimeClampEngine {
+	// Smaller arrays aren't worth splitting
+	private static final int PARALLEL_THRESHOLD = 8192;
+
+	private static final int PROCESSORS_COUNT = Runtime.getRuntime().availableProcessors();
+	
+	// Created on the first parallel clamping
+	private static ExecutorService executor;
+
+	/**
+	 * The state of the clamping: the calendar, the bounds and the scratch fields.
+	 * Each parallel task has its own one.
+	 */
+	private static final class Worker {
+		private final CalendarBackend calendarBackend;
+		private final DateTimeBounds bounds = new DateTimeBounds();
+		private final int[] fields = new int[DateTimeBounds.FIELDS_COUNT];
+
+		Worker(DateTimeClampEngine engine) {
+			ArithmeticCalendarBackend arithmeticBackend = new ArithmeticCalendarBackend(engine.timeZone);
+			calendarBackend = arithmeticBackend;
+
+			// The gaps are looked up in the worker's own table, the tables aren't thread safe
+			ZoneTransitionTable transitions = arithmeticBackend.getTransitions();
+			DaylightGapConstraint gapConstraint = null;
+			if (DaylightGapConstraint.isNeeded(transitions, engine.minValue, engine.maxValue)) {
+				gapConstraint = new DaylightGapConstraint(transitions);
+			}
+			bounds.setConstraint(DaylightGapConstraint.intersect(engine.constraint, gapConstraint));
+			bounds.setFieldsCount(engine.fieldsCount);
+
+			if (engine.minValue != DateTimeChoiceModel.NO_BOUND) {
+				toFields(calendarBackend, engine.minValue, fields);
+				bounds.setLowest(fields);
+			}
+			if (engine.maxValue != DateTimeChoiceModel.NO_BOUND) {
+				toFields(calendarBackend, engine.maxValue, fields);
+				bounds.setHighest(fields);
+			}
+		}
+
+		long clamp(long value) {
+			toFields(calendarBackend, value, fields);
+			bounds.compute(fields, -1);
+			int fieldsCount = bounds.getFieldsCount();
+			for (int i = 0; i < fieldsCount; i++) {
+				fields[i] = bounds.getValue(i);
+			}
+			return toMillis(calendarBackend, fields, fieldsCount);
+		}
+
+		int clamp(long[] values, int from, int to) {
+			int changed = 0;
+			for (int i = from; i < to; i++) {
+				long clamped = clamp(values[i]);
+				if (clamped != values[i]) {
+					values[i] = clamped;
+					changed++;
+				}
+			}
+			return changed;
+		}
+	}
+
+	/**
+	 * Clamps a chunk of the array with its own worker
+	 */
+	private static final class ChunkClamp implements Callable<Integer> {
+		private final Worker worker;
+		private final long[] values;
+		private final int from;
+		private final int to;
+		
+		ChunkClamp(Worker worker, long[] values, int from, int to) {
+			this.worker = worker;
+			this.values = values;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		public Integer call() {
+			return worker.clamp(values, from, to);
+		}
+	}
+
+	private final TimeZone timeZone;
+	private long minValue = DateTimeChoiceModel.NO_BOUND;
+	private long maxValue = DateTimeChoiceModel.NO_BOUND;
+	private DateTimeConstraint constraint;
+	private int fieldsCount = DateTimeBounds.MINUTE + 1;
+	private boolean parallel = true;
+
+	// Created on the first sequential clamping after the settings have changed
+	private Worker worker;
+
+	/**
+	 * @param timeZone the zone of the fields (the same as the view's one)
+	 */
+	public DateTimeClampEngine(TimeZone timeZone) {
+		this.timeZone = timeZone;
+	}
+
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(PROCESSORS_COUNT, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "DateTimeClampEngine");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+
+	/**
+	 * Splits the time into all the fields including the seconds and the milliseconds
+	 */
+	static void toFields(CalendarBackend calendarBackend, long millis, int[] fields) {
+		calendarBackend.toFields(millis, fields);
+
+		// The arithmetic backend looks the offset up in its transition table
+		int offset = calendarBackend instanceof ArithmeticCalendarBackend ? ((ArithmeticCalendarBackend)calendarBackend).getOffset(millis)
+		                                                                  : calendarBackend.getTimeZone().getOffset(millis);
+		long localMillis = millis + offset;
+		int millisOfMinute = (int)(localMillis - ArithmeticCalendarBackend.floorDiv(localMillis, ArithmeticCalendarBackend.MILLIS_PER_MINUTE)
+		                                        * ArithmeticCalendarBackend.MILLIS_PER_MINUTE);
+		fields[DateTimeBounds.SECOND] = millisOfMinute / 1000;
+		fields[DateTimeBounds.MILLISECOND] = millisOfMinute % 1000;
+	}
+
+	/**
+	 * @param fieldsCount the number of the fields used, the seconds and the milliseconds
+	 * are taken into account only if they are within it
+	 */
+	static long toMillis(CalendarBackend calendarBackend, int[] fields, int fieldsCount) {
+		long millis = calendarBackend.toMillis(fields[DateTimeBounds.YEAR],
+		                                       fields[DateTimeBounds.MONTH],
+		                                       fields[DateTimeBounds.DAY_OF_MONTH],
+		                                       fields[DateTimeBounds.HOUR_OF_DAY],
+		                                       fields[DateTimeBounds.MINUTE]);
+		if (fieldsCount > DateTimeBounds.SECOND) {
+			millis += fields[DateTimeBounds.SECOND] * 1000L;
+		}
+		if (fieldsCount > DateTimeBounds.MILLISECOND) {
+			millis += fields[DateTimeBounds.MILLISECOND];
+		}
+		return millis;
+	}
+
+	public TimeZone getTimeZone() {
+		return timeZone;
+	}
+
+	/**
+	 * @param minValue the lowest value in milliseconds since the epoch or {@link DateTimeChoiceModel#NO_BOUND}
+	 */
+	public void setMinValueMillis(long minValue) {
+		this.minValue = minValue;
+		worker = null;
+	}
+
+	public long getMinValueMillis() {
+		return minValue;
+	}
+
+	/**
+	 * @param maxValue the highest value in milliseconds since the epoch or {@link DateTimeChoiceModel#NO_BOUND}
+	 */
+	public void setMaxValueMillis(long maxValue) {
+		this.maxValue = maxValue;
+		worker = null;
+	}
+
+	public long getMaxValueMillis() {
+		return maxValue;
+	}
+
+	/**
+	 * @see DateTimeChoice#setConstraint(DateTimeConstraint)
+	 */
+	public void setConstraint(DateTimeConstraint constraint) {
+		this.constraint = constraint;
+		worker = null;
+	}
+
+	public DateTimeConstraint getConstraint() {
+		return constraint;
+	}
+
+	/**
+	 * Keeps the seconds and the milliseconds as the view does when they are shown
+	 * (see {@link DateTimeChoice#setSecondsVisible(boolean)} and
+	 * {@link DateTimeChoice#setMillisecondsVisible(boolean)}), they are dropped by default
+	 */
+	public void setPrecision(boolean secondsKept, boolean millisecondsKept) {
+		if (millisecondsKept) {
+			fieldsCount = DateTimeBounds.MILLISECOND + 1;
+		} else if (secondsKept) {
+			fieldsCount = DateTimeBounds.SECOND + 1;
+		} else {
+			fieldsCount = DateTimeBounds.MINUTE + 1;
+		}
+		worker = null;
+	}
+
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	/**
+	 * Allows the large arrays to be clamped in parallel (it's the default)
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	private Worker getWorker() {
+		if (worker == null) {
+			worker = new Worker(this);
+		}
+		return worker;
+	}
+
+	/**
+	 * @return the value the view would show
+	 */
+	public long clamp(long value) {
+		return getWorker().clamp(value);
+	}
+
+	/**
+	 * @return <code>true</code> if the value isn't changed by clamping
+	 */
+	public boolean isValid(long value) {
+		return clamp(value) == value;
+	}
+
+	/**
+	 * Clamps the values in place
+	 * @return the number of the values which have been changed (zero if all of them were valid)
+	 */
+	public int clamp(long[] values) {
+		return clamp(values, 0, values.length);
+	}
+
+	/**
+	 * Clamps the values from <code>from</code> (inclusive) to <code>to</code> (exclusive) in place
+	 * @return the number of the values which have been changed
+	 */
+	public int clamp(long[] values, int from, int to) {
+		if (from < 0 || to > values.length || from > to) {
+			throw new IndexOutOfBoundsException("Wrong range [" + from + ", " + to + ") of " + values.length + " values");
+		}
+
+		if (parallel && PROCESSORS_COUNT > 1 && to - from > PARALLEL_THRESHOLD) {
+			return clampInParallel(values, from, to);
+		}
+		return getWorker().clamp(values, from, to);
+	}
+	
+	private int clampInParallel(long[] values, int from, int to) {
+		int chunksCount = Math.min(PROCESSORS_COUNT, (to - from + PARALLEL_THRESHOLD - 1) / PARALLEL_THRESHOLD);
+		int chunkSize = (to - from + chunksCount - 1) / chunksCount;
+		
+		// The workers are created here, so that the tasks don't read the engine's settings
+		ExecutorService executor = getExecutor();
+		@SuppressWarnings("unchecked")
+		Future<Integer>[] futures = new Future[chunksCount];
+		for (int i = 0; i < chunksCount; i++) {
+			int chunkFrom = from + i * chunkSize;
+			int chunkTo = Math.min(chunkFrom + chunkSize, to);
+			futures[i] = executor.submit(new ChunkClamp(new Worker(this), values, chunkFrom, chunkTo));
+		}
+		
+		// The chunks are written in place, so all of them are waited for even if interrupted
+		int changed = 0;
+		boolean interrupted = false;
+		for (int i = 0; i < chunksCount; i++) {
+			while (true) {
+				try {
+					changed += futures[i].get();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException)cause;
+					}
+					throw (Error)cause;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		return changed;
+	}
+}
@@ -0,0 +1,25 @@
+package com.bigfatbrowncat.datetimechoice;
+
+/**
+ * A rule which allows only some of the values of {@link DateTimeChoice} 
+ * (see {@link DateTimeChoice#setConstraint(DateTimeConstraint)}).
+ * 
+ * The values are the local minutes: the wall clock minutes counted from 1970-01-01 00:00 
+ * regardless of the time zone (see {@link IntervalSetConstraint#toLocalMinutes(int, int, int, int, int)}).
+ */
+public interface DateTimeConstraint {
+	/**
+	 * Returned when there is no allowed value in the direction
+	 */
+	public static final long NONE = Long.MIN_VALUE;
+	
+	/**
+	 * @return the lowest allowed value which isn't lower than <code>localMinutes</code> or {@link #NONE}
+	 */
+	public long ceiling(long localMinutes);
+	
+	/**
+	 * @return the highest allowed value which isn't higher than <code>localMinutes</code> or {@link #NONE}
+	 */
+	public long floor(long localMinutes);
+}
@@ -0,0 +1,353 @@
+package com.bigfatbrowncat.datetimechoice;
+
+import java.text.DateFormat;
+import java.text.DateFormatSymbols;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+/**
+ * Parses a whole date and time typed at once, like "2013-08-15 02:44", "15 Aug 2:44"
+ * or "8/15/2013 2:44 PM".
+ *
+ * The time is the numbers joined with ':' (the seconds and the milliseconds are optional),
+ * followed by the locale's AM/PM marker if the clock is 12-hour. The rest is the date:
+ * a month name with the day and the year in any order, the ISO order (the year goes first)
+ * or the numbers in the order of the locale's short date format. The fields missing
+ * in the text (i.e. the year) keep their values.
+ *
+ * The text is scanned once into the reused token arrays, nothing is allocated per parse.
+ */
+final class DateTimeTextParser {
+	private static final int MAX_TOKENS = 12;
+
+	private static final int TOKEN_NUMBER = 0;
+	private static final int TOKEN_WORD = 1;
+
+	// The shortest prefix of a month name taken for the month ("Jan", but not "J" or "Ja")
+	private static final int MIN_MONTH_PREFIX = 3;
+
+	// The view's month names and the locale's full and short ones
+	private final PrefixTrie monthTrie = new PrefixTrie();
+	private final PrefixTrie amPmTrie = new PrefixTrie();
+	// The date fields (the DateTimeBounds indices) in the order of the locale's short date format
+	private final int[] dateOrder = new int[3];
+
+	private final int[] tokenTypes = new int[MAX_TOKENS];
+	private final int[] tokenStarts = new int[MAX_TOKENS];
+	private final int[] tokenEnds = new int[MAX_TOKENS];
+	// The separator before the token or ' ' if there is only a space or nothing
+	private final char[] tokenSeparators = new char[MAX_TOKENS];
+	private int tokensCount;
+
+	private final int[] parsedFields = new int[DateTimeBounds.FIELDS_COUNT];
+	private final int[] dateNumbers = new int[3];
+	private final int[] dateDigits = new int[3];
+
+	/**
+	 * @param monthConverter formats the month names the view shows
+	 */
+	DateTimeTextParser(Locale locale, NumberSpinEdit.CharSequenceValueConverter monthConverter) {
+		DateFormatSymbols symbols = new DateFormatSymbols(locale);
+		String[] months = symbols.getMonths();
+		String[] shortMonths = symbols.getShortMonths();
+		for (int month = 1; month <= 12; month++) {
+			putMonth(monthConverter.format(month), month);
+			putMonth(months[month - 1], month);
+			putMonth(shortMonths[month - 1], month);
+		}
+
+		String[] amPm = symbols.getAmPmStrings();
+		amPmTrie.put(amPm[0], 0);
+		amPmTrie.put(amPm[1], 1);
+
+		loadDateOrder(locale);
+	}
+
+	private void loadDateOrder(Locale locale) {
+		// Day, month, year if the pattern can't tell
+		dateOrder[0] = DateTimeBounds.DAY_OF_MONTH;
+		dateOrder[1] = DateTimeBounds.MONTH;
+		dateOrder[2] = DateTimeBounds.YEAR;
+
+		DateFormat format = DateFormat.getDateInstance(DateFormat.SHORT, locale);
+		if (!(format instanceof SimpleDateFormat)) {
+			return;
+		}
+		String pattern = ((SimpleDateFormat)format).toPattern();
+		int dayIndex = pattern.indexOf('d');
+		int monthIndex = pattern.indexOf('M');
+		int yearIndex = pattern.indexOf('y');
+		if (dayIndex < 0 || monthIndex < 0 || yearIndex < 0) {
+			return;
+		}
+
+		int[] indices = { dayIndex, monthIndex, yearIndex };
+		int[] fields = { DateTimeBounds.DAY_OF_MONTH, DateTimeBounds.MONTH, DateTimeBounds.YEAR };
+		for (int i = 0; i < 3; i++) {
+			int position = 0;
+			for (int j = 0; j < 3; j++) {
+				if (indices[j] < indices[i]) position++;
+			}
+			dateOrder[position] = fields[i];
+		}
+	}
+
+	/**
+	 * Splits the text into the numbers and the words
+	 * @return <code>false</code> if there are too many tokens or unknown characters
+	 */
+	private boolean tokenize(CharSequence text) {
+		tokensCount = 0;
+		char separator = ' ';
+		int length = text.length();
+		int i = 0;
+		while (i < length) {
+			char c = text.charAt(i);
+			if (Character.isWhitespace(c)) {
+				i++;
+				continue;
+			}
+			if (c == ':' || c == '.' || c == ',' || c == '-' || c == '/') {
+				if (separator != ' ') {
+					// Two separators in a row
+					return false;
+				}
+				separator = c;
+				i++;
+				continue;
+			}
+
+			int type;
+			if (c >= '0' && c <= '9') {
+				type = TOKEN_NUMBER;
+			} else if (Character.isLetter(c)) {
+				type = TOKEN_WORD;
+			} else {
+				return false;
+			}
+
+			int start = i;
+			while (i < length && (type == TOKEN_NUMBER ? isDigit(text.charAt(i)) : Character.isLetter(text.charAt(i)))) {
+				i++;
+			}
+
+			if (tokensCount == MAX_TOKENS) {
+				return false;
+			}
+			tokenTypes[tokensCount] = type;
+			tokenStarts[tokensCount] = start;
+			tokenEnds[tokensCount] = i;
+			tokenSeparators[tokensCount] = separator;
+			tokensCount++;
+			separator = ' ';
+		}
+		return tokensCount > 0;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private int getNumber(CharSequence text, int token) {
+		return SpinValues.parse(text, tokenStarts[token], tokenEnds[token], -1);
+	}
+
+	private int getDigits(int token) {
+		return tokenEnds[token] - tokenStarts[token];
+	}
+
+	private boolean isNumberAfter(int token, char separator) {
+		return token < tokensCount && tokenTypes[token] == TOKEN_NUMBER && tokenSeparators[token] == separator;
+	}
+
+	private void putMonth(String name, int month) {
+		if (name != null && name.length() > 0) {
+			monthTrie.put(name, month);
+		}
+	}
+
+	/**
+	 * @return the month of the name (1 - 12) or 0. A whole name is taken, and so is 
+	 * a prefix of {@link #MIN_MONTH_PREFIX} or more chars if it belongs to one month only 
+	 * ("Aug", "Augu"), but not "Ju" or "J", and not a typo after the first letters.
+	 */
+	private int findMonth(CharSequence text, int start, int end) {
+		int month = monthTrie.findUnambiguous(text, start, end, MIN_MONTH_PREFIX);
+		return month != PrefixTrie.NOT_FOUND ? month : 0;
+	}
+
+	/**
+	 * Parses the text into the fields
+	 * @param fields the current value in the DateTimeBounds order, the parsed fields are written into it
+	 * if the whole text is understood
+	 * @return the parsed fields, a combination of <code>1 << index</code> flags, or 0 if the text
+	 * isn't understood (the fields are left unchanged then)
+	 */
+	int parse(CharSequence text, int[] fields) {
+		if (!tokenize(text)) {
+			return 0;
+		}
+
+		System.arraycopy(fields, 0, parsedFields, 0, DateTimeBounds.FIELDS_COUNT);
+		int parsed = 0;
+		int dateCount = 0;
+		int month = 0;
+
+		int i = 0;
+		while (i < tokensCount) {
+			if (tokenTypes[i] == TOKEN_NUMBER && isNumberAfter(i + 1, ':')) {
+				// The time
+				if ((parsed & (1 << DateTimeBounds.HOUR_OF_DAY)) != 0) {
+					return 0;
+				}
+				int hour = getNumber(text, i);
+				int minute = getNumber(text, i + 1);
+				if (getDigits(i + 1) != 2 || minute > 59) {
+					return 0;
+				}
+				parsedFields[DateTimeBounds.HOUR_OF_DAY] = hour;
+				parsedFields[DateTimeBounds.MINUTE] = minute;
+				parsed |= (1 << DateTimeBounds.HOUR_OF_DAY) | (1 << DateTimeBounds.MINUTE);
+				i += 2;
+
+				if (isNumberAfter(i, ':')) {
+					int second = getNumber(text, i);
+					if (getDigits(i) != 2 || second > 59) {
+						return 0;
+					}
+					parsedFields[DateTimeBounds.SECOND] = second;
+					parsed |= 1 << DateTimeBounds.SECOND;
+					i++;
+
+					if (isNumberAfter(i, '.') || isNumberAfter(i, ',')) {
+						int digits = getDigits(i);
+						if (digits > 3) {
+							return 0;
+						}
+						// ".5" is 500 milliseconds
+						int millisecond = getNumber(text, i);
+						for (int d = digits; d < 3; d++) {
+							millisecond *= 10;
+						}
+						parsedFields[DateTimeBounds.MILLISECOND] = millisecond;
+						parsed |= 1 << DateTimeBounds.MILLISECOND;
+						i++;
+					}
+				}
+
+				int amPm = i < tokensCount && tokenTypes[i] == TOKEN_WORD ? amPmTrie.find(text, tokenStarts[i], tokenEnds[i]) : PrefixTrie.NOT_FOUND;
+				if (amPm != PrefixTrie.NOT_FOUND) {
+					if (hour < 1 || hour > 12) {
+						return 0;
+					}
+					parsedFields[DateTimeBounds.HOUR_OF_DAY] = hour % 12 + (amPm == 1 ? 12 : 0);
+					i++;
+				} else if (hour > 23) {
+					return 0;
+				}
+			} else if (tokenTypes[i] == TOKEN_NUMBER) {
+				if (dateCount == dateNumbers.length) {
+					return 0;
+				}
+				dateNumbers[dateCount] = getNumber(text, i);
+				dateDigits[dateCount] = getDigits(i);
+				dateCount++;
+				i++;
+			} else {
+				if (month != 0) {
+					return 0;
+				}
+				month = findMonth(text, tokenStarts[i], tokenEnds[i]);
+				if (month == 0) {
+					return 0;
+				}
+				i++;
+			}
+		}
+
+		if (month != 0 || dateCount > 0) {
+			int dateParsed = parseDate(month, dateCount);
+			if (dateParsed == 0) {
+				return 0;
+			}
+			parsed |= dateParsed;
+		}
+
+		System.arraycopy(parsedFields, 0, fields, 0, DateTimeBounds.FIELDS_COUNT);
+		return parsed;
+	}
+
+	/**
+	 * Puts the date numbers (and the month name if it's given) into the parsed fields
+	 * @return the parsed date fields or 0 if the date isn't valid
+	 */
+	private int parseDate(int month, int dateCount) {
+		int year = parsedFields[DateTimeBounds.YEAR];
+		int day;
+		int parsed;
+
+		if (month != 0) {
+			// The name is the month, the long number (if any) is the year
+			if (dateCount == 1 && dateDigits[0] > 2) {
+				year = dateNumbers[0];
+				// The day is kept, but it has to fit into the month
+				day = Math.min(parsedFields[DateTimeBounds.DAY_OF_MONTH], DateTimeBounds.getHighestDayInMonth(month, year));
+				parsed = (1 << DateTimeBounds.MONTH) | (1 << DateTimeBounds.YEAR);
+			} else if (dateCount == 1) {
+				day = dateNumbers[0];
+				parsed = (1 << DateTimeBounds.MONTH) | (1 << DateTimeBounds.DAY_OF_MONTH);
+			} else if (dateCount == 2) {
+				int yearIndex = dateDigits[0] > 2 ? 0 : 1;
+				year = toYear(dateNumbers[yearIndex], dateDigits[yearIndex]);
+				day = dateNumbers[1 - yearIndex];
+				parsed = (1 << DateTimeBounds.MONTH) | (1 << DateTimeBounds.DAY_OF_MONTH) | (1 << DateTimeBounds.YEAR);
+			} else {
+				return 0;
+			}
+		} else if (dateCount == 3 && dateDigits[0] > 2) {
+			// ISO: year, month, day
+			year = dateNumbers[0];
+			month = dateNumbers[1];
+			day = dateNumbers[2];
+			parsed = (1 << DateTimeBounds.MONTH) | (1 << DateTimeBounds.DAY_OF_MONTH) | (1 << DateTimeBounds.YEAR);
+		} else if (dateCount >= 2) {
+			// The locale's order, the year may be omitted
+			day = parsedFields[DateTimeBounds.DAY_OF_MONTH];
+			parsed = 0;
+			int number = 0;
+			for (int i = 0; i < dateOrder.length && number < dateCount; i++) {
+				int field = dateOrder[i];
+				if (field == DateTimeBounds.YEAR && dateCount < 3) {
+					continue;
+				}
+				if (field == DateTimeBounds.YEAR) {
+					year = toYear(dateNumbers[number], dateDigits[number]);
+				} else if (field == DateTimeBounds.MONTH) {
+					month = dateNumbers[number];
+				} else {
+					day = dateNumbers[number];
+				}
+				parsed |= 1 << field;
+				number++;
+			}
+		} else {
+			// A lone number can't be told apart
+			return 0;
+		}
+
+		if (month < 1 || month > 12 || day < 1 || day > DateTimeBounds.getHighestDayInMonth(month, year)) {
+			return 0;
+		}
+		parsedFields[DateTimeBounds.YEAR] = year;
+		parsedFields[DateTimeBounds.MONTH] = month;
+		parsedFields[DateTimeBounds.DAY_OF_MONTH] = day;
+		return parsed;
+	}
+
+	/**
+	 * @return the year with the century added to the two-digit ones
+	 */
+	private static int toYear(int number, int digits) {
+		return digits <= 2 ? 2000 + number : number;
+	}
+}
@@ -0,0 +1,94 @@
+package com.bigfatbrowncat.datetimechoice;
+
+import java.util.SimpleTimeZone;
+import java.util.TimeZone;
+
+/**
+ * {@link DateTimeConstraint} allowing everything except the wall clock minutes
+ * which don't exist in the time zone (the ones skipped when the clocks are moved forward).
+ *
+ * {@link DateTimeChoice} adds it to its own constraint, so 02:30 of a spring-forward day 
+ * can't be chosen and silently turned into 03:30. The gaps are found in the transitions 
+ * of each year (any forward offset jump), not in the current rules of the zone: 
+ * the zones which don't have the daylight saving time anymore or which have moved 
+ * their clocks once (i.e. Europe/Moscow in 2010) still have the gaps in the past. 
+ * The lookups go to a {@link ZoneTransitionTable}, so they are cheap enough 
+ * to be done on every spin tick. Still, the constraint is only added 
+ * when the range of the view contains a gap (see {@link #isNeeded(ZoneTransitionTable, long, long)}).
+ */
+final class DaylightGapConstraint implements DateTimeConstraint {
+	// The range the view shows without the bounds (in UTC, a day wider for any offset)
+	private static final long LOWEST_MILLIS = (ArithmeticCalendarBackend.toEpochDay(DateTimeBounds.DEFAULT_LOWEST_YEAR, 1, 1) - 1) 
+			* ArithmeticCalendarBackend.MINUTES_PER_DAY * ArithmeticCalendarBackend.MILLIS_PER_MINUTE;
+	private static final long HIGHEST_MILLIS = (ArithmeticCalendarBackend.toEpochDay(DateTimeBounds.DEFAULT_HIGHEST_YEAR + 1, 1, 1) + 1) 
+			* ArithmeticCalendarBackend.MINUTES_PER_DAY * ArithmeticCalendarBackend.MILLIS_PER_MINUTE;
+	
+	private final ZoneTransitionTable transitions;
+
+	/**
+	 * @param transitions the table of the zone, shared with the view's {@link ArithmeticCalendarBackend}
+	 */
+	DaylightGapConstraint(ZoneTransitionTable transitions) {
+		this.transitions = transitions;
+	}
+
+	/**
+	 * @param minValue the lowest value in milliseconds since the epoch or {@link DateTimeChoiceModel#NO_BOUND}
+	 * @param maxValue the highest value in milliseconds since the epoch or {@link DateTimeChoiceModel#NO_BOUND}
+	 * @return whether the clocks are moved forward between the values (within the whole range 
+	 * the view can show if they aren't given), so that the constraint is needed. 
+	 * UTC and the fixed {@link SimpleTimeZone}s aren't even scanned.
+	 */
+	static boolean isNeeded(ZoneTransitionTable transitions, long minValue, long maxValue) {
+		TimeZone timeZone = transitions.getTimeZone();
+		String id = timeZone.getID();
+		if ("UTC".equals(id) || "GMT".equals(id) || (timeZone instanceof SimpleTimeZone && !timeZone.useDaylightTime())) {
+			return false;
+		}
+		
+		if (minValue == DateTimeChoiceModel.NO_BOUND) {
+			minValue = LOWEST_MILLIS;
+		}
+		if (maxValue == DateTimeChoiceModel.NO_BOUND) {
+			maxValue = HIGHEST_MILLIS;
+		}
+		return transitions.hasGap(minValue, maxValue);
+	}
+	
+	ZoneTransitionTable getTransitions() {
+		return transitions;
+	}
+
+	/**
+	 * @param constraint the user's constraint or <code>null</code>
+	 * @param gapConstraint the gaps of the time zone or <code>null</code> if it has no daylight saving time
+	 * @return the constraint allowing what both of them allow or <code>null</code> if there is none
+	 */
+	static DateTimeConstraint intersect(DateTimeConstraint constraint, DaylightGapConstraint gapConstraint) {
+		if (gapConstraint == null) {
+			return constraint;
+		} else if (constraint == null) {
+			return gapConstraint;
+		} else {
+			return new IntersectionConstraint(constraint, gapConstraint);
+		}
+	}
+
+	@Override
+	public long ceiling(long localMinutes) {
+		if (!transitions.findGap(localMinutes * ArithmeticCalendarBackend.MILLIS_PER_MINUTE)) {
+			return localMinutes;
+		}
+		// The first whole minute after the gap
+		return -ArithmeticCalendarBackend.floorDiv(-transitions.getGapEnd(), ArithmeticCalendarBackend.MILLIS_PER_MINUTE);
+	}
+
+	@Override
+	public long floor(long localMinutes) {
+		if (!transitions.findGap(localMinutes * ArithmeticCalendarBackend.MILLIS_PER_MINUTE)) {
+			return localMinutes;
+		}
+		// The last minute starting before the gap
+		return ArithmeticCalendarBackend.floorDiv(transitions.getGapStart() - 1, ArithmeticCalendarBackend.MILLIS_PER_MINUTE);
+	}
+}
@@ -0,0 +1,47 @@
+package com.bigfatbrowncat.datetimechoice;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * {@link CalendarBackend} adapter over {@link java.util.GregorianCalendar}.
+ * 
+ * One calendar is reused for all the conversions, so converting allocates nothing.
+ * The {@link ArithmeticCalendarBackend} is faster, this one is kept for the cases 
+ * when the results have to come from <code>java.util.Calendar</code> itself.
+ */
+public class GregorianCalendarBackend implements CalendarBackend {
+	private final Calendar calendar;
+	
+	public GregorianCalendarBackend(TimeZone timeZone) {
+		calendar = new GregorianCalendar(timeZone);
+	}
+	
+	@Override
+	public TimeZone getTimeZone() {
+		return calendar.getTimeZone();
+	}
+	
+	@Override
+	public void setTimeZone(TimeZone timeZone) {
+		calendar.setTimeZone(timeZone);
+	}
+	
+	@Override
+	public long toMillis(int year, int month, int dayOfMonth, int hourOfDay, int minute) {
+		calendar.clear();
+		calendar.set(year, month - 1, dayOfMonth, hourOfDay, minute);
+		return calendar.getTimeInMillis();
+	}
+	
+	@Override
+	public void toFields(long millis, int[] fields) {
+		calendar.setTimeInMillis(millis);
+		fields[DateTimeBounds.YEAR] = calendar.get(Calendar.YEAR);
+		fields[DateTimeBounds.MONTH] = calendar.get(Calendar.MONTH) + 1;
+		fields[DateTimeBounds.DAY_OF_MONTH] = calendar.get(Calendar.DAY_OF_MONTH);
+		fields[DateTimeBounds.HOUR_OF_DAY] = calendar.get(Calendar.HOUR_OF_DAY);
+		fields[DateTimeBounds.MINUTE] = calendar.get(Calendar.MINUTE);
+	}
+}
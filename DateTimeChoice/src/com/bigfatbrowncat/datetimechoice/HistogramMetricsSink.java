@@ -0,0 +1,63 @@
+package com.bigfatbrowncat.datetimechoice;
+
+/**
+ * {@link PickerMetrics.Sink} collecting a histogram of the durations per section.
+ * 
+ * The buckets are powers of two in microseconds: bucket 0 holds the durations 
+ * below 1 usec, bucket <code>i</code> the ones below <code>2^i</code> usec, 
+ * the last bucket holds everything longer. Recording allocates nothing. 
+ * The histogram can be read from another thread, the readings are approximate then.
+ */
+public class HistogramMetricsSink implements PickerMetrics.Sink {
+	public static final int BUCKETS_COUNT = 24;
+	
+	private final long[][] buckets = new long[PickerMetrics.SECTIONS_COUNT][BUCKETS_COUNT];
+	private final long[] counts = new long[PickerMetrics.SECTIONS_COUNT];
+	private final long[] totalNanos = new long[PickerMetrics.SECTIONS_COUNT];
+	
+	@Override
+	public void onSection(int section, long durationNanos) {
+		long micros = durationNanos / 1000;
+		int bucket = micros > 0 ? 64 - Long.numberOfLeadingZeros(micros) : 0;
+		if (bucket >= BUCKETS_COUNT) {
+			bucket = BUCKETS_COUNT - 1;
+		}
+		
+		buckets[section][bucket]++;
+		counts[section]++;
+		totalNanos[section] += durationNanos;
+	}
+	
+	/**
+	 * @return how many times the section has been executed
+	 */
+	public long getCount(int section) {
+		return counts[section];
+	}
+	
+	public long getTotalNanos(int section) {
+		return totalNanos[section];
+	}
+	
+	public long getBucketCount(int section, int bucket) {
+		return buckets[section][bucket];
+	}
+	
+	/**
+	 * @return the upper bound of the bucket in microseconds 
+	 * ({@link Long#MAX_VALUE} for the last one)
+	 */
+	public static long getBucketUpperBoundMicros(int bucket) {
+		return bucket < BUCKETS_COUNT - 1 ? 1L << bucket : Long.MAX_VALUE;
+	}
+	
+	public void reset() {
+		for (int section = 0; section < PickerMetrics.SECTIONS_COUNT; section++) {
+			for (int bucket = 0; bucket < BUCKETS_COUNT; bucket++) {
+				buckets[section][bucket] = 0;
+			}
+			counts[section] = 0;
+			totalNanos[section] = 0;
+		}
+	}
+}
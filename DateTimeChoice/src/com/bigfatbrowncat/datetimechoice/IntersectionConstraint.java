@@ -0,0 +1,160 @@
+package com.bigfatbrowncat.datetimechoice;
+
+import java.util.ArrayList;
+
+/**
+ * {@link DateTimeConstraint} allowing the values which all of the given constraints allow 
+ * (i.e. the business hours in 15-minute slots except the holidays)
+ * 
+ * The {@link IntervalSetConstraint}s are intersected once, when the constraint is created: 
+ * the business hours and the 15-minute slots become one daily set, the daily mornings 
+ * and the daily evenings become an empty one. What can't be intersected that way 
+ * is asked in turns until the constraints agree, each one jumping to its next allowed interval. 
+ * That search is limited: by default to the years {@link DateTimeChoice} can show 
+ * and to {@link #SEARCH_SPAN_DAYS} if a few periodic sets are left, which might never overlap.
+ */
+public final class IntersectionConstraint implements DateTimeConstraint {
+	// The first and the last minutes the view can show
+	private static final long LOWEST_MINUTES = ArithmeticCalendarBackend.toLocalMinutes(DateTimeBounds.DEFAULT_LOWEST_YEAR, 1, 1, 0, 0);
+	private static final long HIGHEST_MINUTES = ArithmeticCalendarBackend.toLocalMinutes(DateTimeBounds.DEFAULT_HIGHEST_YEAR, 12, 31, 23, 59);
+	
+	/**
+	 * How far the search goes if a few periodic sets are left after the intersection
+	 */
+	public static final int SEARCH_SPAN_DAYS = 366;
+	private static final long SEARCH_SPAN_MINUTES = SEARCH_SPAN_DAYS * IntervalSetConstraint.MINUTES_PER_DAY;
+	
+	// The largest set written down to intersect two sets
+	// (a week of 1-minute slots fits)
+	private static final int MAX_INTERSECTED_INTERVALS = 16384;
+	
+	private final DateTimeConstraint[] constraints;
+	// Whether the constraints could move each other forever
+	private final boolean spanLimited;
+	
+	public IntersectionConstraint(DateTimeConstraint... constraints) {
+		ArrayList<DateTimeConstraint> intersected = new ArrayList<DateTimeConstraint>(constraints.length);
+		add(constraints, intersected);
+		this.constraints = intersected.toArray(new DateTimeConstraint[intersected.size()]);
+		
+		int periodicCount = 0;
+		for (int i = 0; i < this.constraints.length; i++) {
+			if (this.constraints[i] instanceof IntervalSetConstraint && ((IntervalSetConstraint)this.constraints[i]).getPeriod() > 0) {
+				periodicCount++;
+			}
+		}
+		spanLimited = periodicCount > 1;
+	}
+	
+	/**
+	 * Adds the constraints to the list, unwrapping the nested intersections 
+	 * and intersecting the interval sets with the ones already in the list
+	 */
+	private static void add(DateTimeConstraint[] constraints, ArrayList<DateTimeConstraint> intersected) {
+		for (int i = 0; i < constraints.length; i++) {
+			DateTimeConstraint constraint = constraints[i];
+			if (constraint instanceof IntersectionConstraint) {
+				add(((IntersectionConstraint)constraint).constraints, intersected);
+				continue;
+			}
+			
+			if (constraint instanceof IntervalSetConstraint) {
+				IntervalSetConstraint intervalSet = (IntervalSetConstraint)constraint;
+				boolean merged = false;
+				for (int j = 0; j < intersected.size() && !merged; j++) {
+					if (intersected.get(j) instanceof IntervalSetConstraint) {
+						IntervalSetConstraint intersection = ((IntervalSetConstraint)intersected.get(j)).intersect(intervalSet, MAX_INTERSECTED_INTERVALS);
+						if (intersection != null) {
+							intersected.set(j, intersection);
+							merged = true;
+						}
+					}
+				}
+				if (merged) {
+					continue;
+				}
+			}
+			intersected.add(constraint);
+		}
+	}
+	
+	@Override
+	public long ceiling(long localMinutes) {
+		return ceiling(localMinutes, Math.max(localMinutes, HIGHEST_MINUTES));
+	}
+	
+	/**
+	 * The same as {@link #ceiling(long)}, but the search stops after <code>limit</code>
+	 * @return the allowed value not higher than <code>limit</code> or {@link #NONE}
+	 */
+	public long ceiling(long localMinutes, long limit) {
+		if (spanLimited && localMinutes < limit - SEARCH_SPAN_MINUTES) {
+			limit = localMinutes + SEARCH_SPAN_MINUTES;
+		}
+		
+		// Moving up until every constraint agrees
+		boolean moved = true;
+		while (moved) {
+			moved = false;
+			for (int i = 0; i < constraints.length; i++) {
+				long allowed = ceiling(constraints[i], localMinutes, limit);
+				if (allowed == NONE || allowed > limit) {
+					return NONE;
+				}
+				if (allowed != localMinutes) {
+					localMinutes = allowed;
+					moved = true;
+				}
+			}
+		}
+		return localMinutes;
+	}
+	
+	@Override
+	public long floor(long localMinutes) {
+		return floor(localMinutes, Math.min(localMinutes, LOWEST_MINUTES));
+	}
+	
+	/**
+	 * The same as {@link #floor(long)}, but the search stops before <code>limit</code>
+	 * @return the allowed value not lower than <code>limit</code> or {@link #NONE}
+	 */
+	public long floor(long localMinutes, long limit) {
+		if (spanLimited && localMinutes > limit + SEARCH_SPAN_MINUTES) {
+			limit = localMinutes - SEARCH_SPAN_MINUTES;
+		}
+		
+		boolean moved = true;
+		while (moved) {
+			moved = false;
+			for (int i = 0; i < constraints.length; i++) {
+				long allowed = floor(constraints[i], localMinutes, limit);
+				if (allowed == NONE || allowed < limit) {
+					return NONE;
+				}
+				if (allowed != localMinutes) {
+					localMinutes = allowed;
+					moved = true;
+				}
+			}
+		}
+		return localMinutes;
+	}
+	
+	/**
+	 * Passes the limit on to the nested intersections
+	 */
+	static long ceiling(DateTimeConstraint constraint, long localMinutes, long limit) {
+		if (constraint instanceof IntersectionConstraint) {
+			return ((IntersectionConstraint)constraint).ceiling(localMinutes, limit);
+		}
+		return constraint.ceiling(localMinutes);
+	}
+	
+	static long floor(DateTimeConstraint constraint, long localMinutes, long limit) {
+		if (constraint instanceof IntersectionConstraint) {
+			return ((IntersectionConstraint)constraint).floor(localMinutes, limit);
+		}
+		return constraint.floor(localMinutes);
+	}
+}
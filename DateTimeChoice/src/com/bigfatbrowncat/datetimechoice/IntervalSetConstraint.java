@@ -0,0 +1,313 @@
+package com.bigfatbrowncat.datetimechoice;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * {@link DateTimeConstraint} allowing a set of intervals of the local minutes.
+ * 
+ * The intervals are kept sorted and merged, so both lookups are binary searches. 
+ * The set may repeat with a period: the business hours are a daily interval, 
+ * the 15-minute slots are the first minute of each 15. The excluded dates are 
+ * the {@link #complement()} of the set of those dates.
+ */
+public final class IntervalSetConstraint implements DateTimeConstraint {
+	public static final long MINUTES_PER_DAY = 24 * 60;
+	public static final long MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+	
+	// The allowed intervals [start, end), sorted and not touching each other
+	private final long[] starts;
+	private final long[] ends;
+	// 0 if the set doesn't repeat
+	private final long period;
+	
+	/**
+	 * @param starts the first minutes of the allowed intervals
+	 * @param ends the minutes right after the intervals (the interval <code>i</code> is 
+	 * <code>[starts[i], ends[i])</code>). The intervals may be given in any order and overlap.
+	 */
+	public IntervalSetConstraint(long[] starts, long[] ends) {
+		this(starts, ends, 0);
+	}
+	
+	/**
+	 * @param period if it isn't 0, the intervals are given within <code>[0, period)</code> 
+	 * and repeat every period (the periods start at 1970-01-01 00:00, which was Thursday)
+	 */
+	public IntervalSetConstraint(long[] starts, long[] ends, long period) {
+		if (starts.length != ends.length) {
+			throw new IllegalArgumentException("The starts and the ends of the intervals don't match");
+		}
+		if (period < 0) {
+			throw new IllegalArgumentException("The period is negative");
+		}
+		
+		// Sorting the intervals by their starts
+		int count = starts.length;
+		long[][] intervals = new long[count][];
+		for (int i = 0; i < count; i++) {
+			long start = starts[i];
+			long end = ends[i];
+			if (period > 0) {
+				start = Math.max(start, 0);
+				end = Math.min(end, period);
+			}
+			intervals[i] = new long[] { start, end };
+		}
+		Arrays.sort(intervals, new Comparator<long[]>() {
+			
+			@Override
+			public int compare(long[] lhs, long[] rhs) {
+				return lhs[0] < rhs[0] ? -1 : (lhs[0] == rhs[0] ? 0 : 1);
+			}
+		});
+		
+		// Merging the overlapping and touching ones, dropping the empty ones
+		long[] mergedStarts = new long[count];
+		long[] mergedEnds = new long[count];
+		int merged = 0;
+		for (int i = 0; i < count; i++) {
+			long start = intervals[i][0];
+			long end = intervals[i][1];
+			if (start >= end) {
+				continue;
+			}
+			if (merged > 0 && start <= mergedEnds[merged - 1]) {
+				mergedEnds[merged - 1] = Math.max(mergedEnds[merged - 1], end);
+			} else {
+				mergedStarts[merged] = start;
+				mergedEnds[merged] = end;
+				merged++;
+			}
+		}
+		
+		this.starts = new long[merged];
+		this.ends = new long[merged];
+		System.arraycopy(mergedStarts, 0, this.starts, 0, merged);
+		System.arraycopy(mergedEnds, 0, this.ends, 0, merged);
+		this.period = period;
+	}
+	
+	/**
+	 * @return the set allowing the minutes of each day from <code>fromMinuteOfDay</code> 
+	 * up to (but not including) <code>toMinuteOfDay</code>
+	 */
+	public static IntervalSetConstraint daily(int fromMinuteOfDay, int toMinuteOfDay) {
+		return new IntervalSetConstraint(new long[] { fromMinuteOfDay }, new long[] { toMinuteOfDay }, MINUTES_PER_DAY);
+	}
+	
+	/**
+	 * @return the set allowing the minutes divisible by <code>step</code> 
+	 * (the slots of a day if <code>step</code> divides it evenly)
+	 */
+	public static IntervalSetConstraint everyMinutes(int step) {
+		return new IntervalSetConstraint(new long[] { 0 }, new long[] { 1 }, step);
+	}
+	
+	/**
+	 * @param month the month (January = 1, February = 2, ...)
+	 * @return the local minutes of the wall clock time
+	 */
+	public static long toLocalMinutes(int year, int month, int dayOfMonth, int hourOfDay, int minute) {
+		return ArithmeticCalendarBackend.toLocalMinutes(year, month, dayOfMonth, hourOfDay, minute);
+	}
+	
+	/**
+	 * @return the set allowing everything this one doesn't
+	 */
+	public IntervalSetConstraint complement() {
+		long lowest = period > 0 ? 0 : Long.MIN_VALUE + 1;
+		long highest = period > 0 ? period : Long.MAX_VALUE;
+		
+		long[] gapStarts = new long[starts.length + 1];
+		long[] gapEnds = new long[starts.length + 1];
+		long previousEnd = lowest;
+		for (int i = 0; i < starts.length; i++) {
+			gapStarts[i] = previousEnd;
+			gapEnds[i] = starts[i];
+			previousEnd = ends[i];
+		}
+		gapStarts[starts.length] = previousEnd;
+		gapEnds[starts.length] = highest;
+		
+		return new IntervalSetConstraint(gapStarts, gapEnds, period);
+	}
+	
+	long getPeriod() {
+		return period;
+	}
+	
+	/**
+	 * @return the set allowing what both sets allow or <code>null</code> if it would take 
+	 * more than <code>maxIntervals</code> intervals of each set to find it (i.e. the periods 
+	 * have no small common multiple or a periodic set is intersected with an endless one)
+	 */
+	IntervalSetConstraint intersect(IntervalSetConstraint other, int maxIntervals) {
+		// The span both sets are written down over and the period of the result
+		long from, to, resultPeriod;
+		if (period > 0 && other.period > 0) {
+			long multiplier = period / gcd(period, other.period);
+			if (multiplier > Long.MAX_VALUE / other.period) {
+				return null;
+			}
+			resultPeriod = multiplier * other.period;
+			from = 0;
+			to = resultPeriod;
+		} else {
+			IntervalSetConstraint finite = period == 0 ? this : other;
+			if (finite.starts.length == 0) {
+				return finite;
+			}
+			resultPeriod = 0;
+			from = finite.starts[0];
+			to = finite.ends[finite.ends.length - 1];
+		}
+		
+		long[][] these = expand(from, to, maxIntervals);
+		long[][] others = other.expand(from, to, maxIntervals);
+		if (these == null || others == null) {
+			return null;
+		}
+		
+		// Merging the two sorted lists
+		long[] theseStarts = these[0], theseEnds = these[1];
+		long[] othersStarts = others[0], othersEnds = others[1];
+		long[] resultStarts = new long[theseStarts.length + othersStarts.length];
+		long[] resultEnds = new long[resultStarts.length];
+		int count = 0;
+		int i = 0, j = 0;
+		while (i < theseStarts.length && j < othersStarts.length) {
+			long start = Math.max(theseStarts[i], othersStarts[j]);
+			long end = Math.min(theseEnds[i], othersEnds[j]);
+			if (start < end) {
+				resultStarts[count] = start;
+				resultEnds[count] = end;
+				count++;
+			}
+			if (theseEnds[i] < othersEnds[j]) {
+				i++;
+			} else {
+				j++;
+			}
+		}
+		
+		long[] starts = new long[count];
+		long[] ends = new long[count];
+		System.arraycopy(resultStarts, 0, starts, 0, count);
+		System.arraycopy(resultEnds, 0, ends, 0, count);
+		return new IntervalSetConstraint(starts, ends, resultPeriod);
+	}
+	
+	/**
+	 * @return the starts and the ends of the intervals covering <code>[from, to)</code>, 
+	 * sorted (the periodic set is repeated over the span) or <code>null</code> 
+	 * if there are more than <code>maxIntervals</code> of them
+	 */
+	private long[][] expand(long from, long to, int maxIntervals) {
+		if (period == 0) {
+			return starts.length <= maxIntervals ? new long[][] { starts, ends } : null;
+		}
+		
+		// In double not to overflow on the endless spans
+		if ((((double) to - from) / period + 1) * starts.length > maxIntervals) {
+			return null;
+		}
+		long base = ArithmeticCalendarBackend.floorDiv(from, period) * period;
+		int periods = (int) ((to - base + period - 1) / period);
+		long[] expandedStarts = new long[periods * starts.length];
+		long[] expandedEnds = new long[expandedStarts.length];
+		for (int k = 0; k < periods; k++) {
+			for (int i = 0; i < starts.length; i++) {
+				expandedStarts[k * starts.length + i] = base + starts[i];
+				expandedEnds[k * starts.length + i] = base + ends[i];
+			}
+			base += period;
+		}
+		return new long[][] { expandedStarts, expandedEnds };
+	}
+	
+	private static long gcd(long a, long b) {
+		while (b != 0) {
+			long remainder = a % b;
+			a = b;
+			b = remainder;
+		}
+		return a;
+	}
+	
+	/**
+	 * @return the index of the first interval ending after the minute or the intervals count
+	 */
+	private int findEndingAfter(long minute) {
+		int low = 0;
+		int high = ends.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (ends[middle] > minute) {
+				high = middle;
+			} else {
+				low = middle + 1;
+			}
+		}
+		return low;
+	}
+	
+	/**
+	 * @return the index of the last interval starting not later than the minute or -1
+	 */
+	private int findStartingAtOrBefore(long minute) {
+		int low = 0;
+		int high = starts.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (starts[middle] <= minute) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low - 1;
+	}
+	
+	@Override
+	public long ceiling(long localMinutes) {
+		if (starts.length == 0) {
+			return NONE;
+		}
+		
+		long base = 0;
+		long minute = localMinutes;
+		if (period > 0) {
+			base = ArithmeticCalendarBackend.floorDiv(localMinutes, period) * period;
+			minute = localMinutes - base;
+		}
+		
+		int index = findEndingAfter(minute);
+		if (index < starts.length) {
+			return base + Math.max(minute, starts[index]);
+		}
+		// Going to the next period
+		return period > 0 ? base + period + starts[0] : NONE;
+	}
+	
+	@Override
+	public long floor(long localMinutes) {
+		if (starts.length == 0) {
+			return NONE;
+		}
+		
+		long base = 0;
+		long minute = localMinutes;
+		if (period > 0) {
+			base = ArithmeticCalendarBackend.floorDiv(localMinutes, period) * period;
+			minute = localMinutes - base;
+		}
+		
+		int index = findStartingAtOrBefore(minute);
+		if (index >= 0) {
+			return base + Math.min(minute, ends[index] - 1);
+		}
+		// Going to the previous period
+		return period > 0 ? base - period + ends[ends.length - 1] - 1 : NONE;
+	}
+}
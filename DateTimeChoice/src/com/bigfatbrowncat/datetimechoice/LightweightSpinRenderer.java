@@ -0,0 +1,334 @@
+package com.bigfatbrowncat.datetimechoice;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.util.SparseArray;
+
+/**
+ * Draws {@link NumberSpinEdit} in the lightweight mode: the raise button,
+ * the value text and the lower button are painted on the spin edit's own canvas
+ * instead of being separate child views.
+ *
+ * The text layouts of the values are cached, so a value is measured
+ * only once while it's being spun back and forth. When the range of the field
+ * is changed, the values are formatted and measured on a background thread,
+ * so spinning only picks the measured ones.
+ */
+final class LightweightSpinRenderer {
+	static final int ZONE_NONE = 0;
+	static final int ZONE_RAISE = 1;
+	static final int ZONE_TEXT = 2;
+	static final int ZONE_LOWER = 3;
+
+	private static final int[] ENABLED_STATE_SET = { android.R.attr.state_enabled };
+	private static final int[] PRESSED_ENABLED_STATE_SET = { android.R.attr.state_enabled, android.R.attr.state_pressed };
+	private static final int[] DISABLED_STATE_SET = {};
+
+	// Enough for a wheel spun over two centuries of years
+	private static final int LAYOUT_CACHE_LIMIT = 256;
+	
+	// The alpha of the wheel values around the selected one, of 255
+	private static final int WHEEL_DIMMED_ALPHA = 96;
+
+	private final TextPaint textPaint;
+	private final Drawable raiseDrawable;
+	private final Drawable lowerDrawable;
+
+	private final int buttonHeight;
+	private final int textPadding;
+	private final int lineHeight;
+
+	private final SparseArray<Layout> layoutCache = new SparseArray<Layout>();
+	// Increased when the cache is cleared, so that the layouts built for the old values are dropped
+	private int layoutCacheGeneration;
+	
+	// The last precomputed range, the bounds are often set again to the same values
+	private int precomputedMinValue;
+	private int precomputedMaxValue;
+	private NumberSpinEdit.ValueConverter precomputedConverter;
+	private int precomputedGeneration = -1;
+	
+	// Shared by all the renderers, the layouts are built one range after another
+	private static ExecutorService layoutExecutor;
+	// The built layouts are delivered through it even if the view isn't attached yet
+	private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+	LightweightSpinRenderer(Context context) {
+		Resources resources = context.getResources();
+
+		textPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+		textPaint.setTextSize(resources.getDimension(R.dimen.spin_text_size));
+
+		TypedArray themeAttributes = context.getTheme().obtainStyledAttributes(new int[] { android.R.attr.textColorPrimary });
+		ColorStateList textColors = themeAttributes.getColorStateList(0);
+		themeAttributes.recycle();
+		textPaint.setColor(textColors != null ? textColors.getDefaultColor() : Color.BLACK);
+
+		raiseDrawable = resources.getDrawable(R.drawable.spin_button_up).mutate();
+		lowerDrawable = resources.getDrawable(R.drawable.spin_button_down).mutate();
+
+		buttonHeight = resources.getDimensionPixelSize(R.dimen.spin_button_height);
+		textPadding = resources.getDimensionPixelSize(R.dimen.spin_text_padding);
+		lineHeight = Math.round(textPaint.getFontSpacing());
+	}
+
+	float getTextSize() {
+		return textPaint.getTextSize();
+	}
+
+	int getTextPadding() {
+		return textPadding;
+	}
+
+	/**
+	 * Should be called when the formatting of the values has been changed
+	 */
+	void clearLayoutCache() {
+		layoutCache.clear();
+		layoutCacheGeneration++;
+	}
+	
+	private static synchronized ExecutorService getLayoutExecutor() {
+		if (layoutExecutor == null) {
+			layoutExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "LightweightSpinRenderer layouts");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return layoutExecutor;
+	}
+
+	private static Layout createValueLayout(String text, TextPaint paint) {
+		int width = (int)Math.ceil(Layout.getDesiredWidth(text, paint));
+		return new StaticLayout(text, paint, width, Layout.Alignment.ALIGN_CENTER, 1f, 0f, false);
+	}
+	
+	/**
+	 * Builds the layouts of all the values from <code>minValue</code> to <code>maxValue</code>
+	 * on a background thread and puts the ones which aren't cached yet into the cache 
+	 * on the view's thread. The ranges larger than the cache are left to 
+	 * {@link #prepareWheelLayouts(NumberSpinEdit, int, int, NumberSpinEdit.ValueConverter)}.
+	 * 
+	 * The converters are thread safe, so the values are formatted on the background
+	 * thread too, the view's thread only makes a copy of the paint: the layouts keep 
+	 * their paint, and it isn't thread safe. The same range is precomputed only once.
+	 */
+	void precomputeLayouts(final int minValue, final int maxValue, final NumberSpinEdit.ValueConverter valueConverter) {
+		if (minValue == precomputedMinValue && maxValue == precomputedMaxValue && 
+				valueConverter == precomputedConverter && layoutCacheGeneration == precomputedGeneration) {
+			return;
+		}
+		precomputedMinValue = minValue;
+		precomputedMaxValue = maxValue;
+		precomputedConverter = valueConverter;
+		precomputedGeneration = layoutCacheGeneration;
+		
+		if (maxValue - minValue >= LAYOUT_CACHE_LIMIT) {
+			return;
+		}
+		boolean missing = false;
+		for (int value = minValue; value <= maxValue && !missing; value++) {
+			missing = layoutCache.get(value) == null;
+		}
+		if (!missing) {
+			return;
+		}
+		
+		final int generation = layoutCacheGeneration;
+		final TextPaint paint = new TextPaint(textPaint);
+		getLayoutExecutor().execute(new Runnable() {
+			@Override
+			public void run() {
+				Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+				final Layout[] layouts = new Layout[maxValue - minValue + 1];
+				for (int i = 0; i < layouts.length; i++) {
+					layouts[i] = createValueLayout(NumberSpinEdit.formatValue(valueConverter, minValue + i), paint);
+				}
+				
+				mainHandler.post(new Runnable() {
+					@Override
+					public void run() {
+						if (generation != layoutCacheGeneration) {
+							return;
+						}
+						if (layoutCache.size() + layouts.length > LAYOUT_CACHE_LIMIT) {
+							layoutCache.clear();
+						}
+						for (int i = 0; i < layouts.length; i++) {
+							// Cached already or built by the view's thread meanwhile
+							if (layoutCache.get(minValue + i) == null) {
+								layoutCache.put(minValue + i, layouts[i]);
+							}
+						}
+					}
+				});
+			}
+		});
+	}
+
+	Layout getValueLayout(int value, NumberSpinEdit.ValueConverter valueConverter) {
+		Layout layout = layoutCache.get(value);
+		if (layout == null) {
+			if (layoutCache.size() >= LAYOUT_CACHE_LIMIT) {
+				layoutCache.clear();
+			}
+
+			layout = createValueLayout(NumberSpinEdit.formatValue(valueConverter, value), textPaint);
+			layoutCache.put(value, layout);
+		}
+		return layout;
+	}
+
+	/**
+	 * Builds the layouts of the wheel rows in advance, so that a fling over them 
+	 * doesn't format anything while it's running. At most a half of the cache 
+	 * is prepared, the rows nearest to <code>toRow</code> are preferred.
+	 */
+	void prepareWheelLayouts(NumberSpinEdit view, int fromRow, int toRow, NumberSpinEdit.ValueConverter valueConverter) {
+		int direction = fromRow <= toRow ? 1 : -1;
+		int count = Math.min(Math.abs(toRow - fromRow) + 1, LAYOUT_CACHE_LIMIT / 2);
+		if (layoutCache.size() + count > LAYOUT_CACHE_LIMIT) {
+			layoutCache.clear();
+		}
+		for (int i = 0; i < count; i++) {
+			getValueLayout(view.getWheelRowValue(toRow - i * direction), valueConverter);
+		}
+	}
+
+	/**
+	 * The width of the content as the EditText with the same ems would take it
+	 */
+	int getContentWidth(int ems) {
+		int width = ems * lineHeight + 2 * textPadding;
+		width = Math.max(width, raiseDrawable.getIntrinsicWidth());
+		width = Math.max(width, lowerDrawable.getIntrinsicWidth());
+		return width;
+	}
+
+	int getContentHeight() {
+		return 2 * buttonHeight + getTextAreaHeight();
+	}
+
+	int getTextAreaHeight() {
+		return lineHeight + 2 * textPadding;
+	}
+
+	int getButtonHeight() {
+		return buttonHeight;
+	}
+
+	/**
+	 * @param y the vertical position relative to the content top
+	 * @return the zone the position belongs to
+	 */
+	int hitTest(int y, int contentHeight) {
+		if (y < 0 || y >= contentHeight) {
+			return ZONE_NONE;
+		} else if (y < buttonHeight) {
+			return ZONE_RAISE;
+		} else if (y >= contentHeight - buttonHeight) {
+			return ZONE_LOWER;
+		} else {
+			return ZONE_TEXT;
+		}
+	}
+
+	/**
+	 * @return the text baseline relative to the content top
+	 */
+	int getBaseline(Layout valueLayout, int contentHeight) {
+		int textAreaHeight = contentHeight - 2 * buttonHeight;
+		return buttonHeight + (textAreaHeight - valueLayout.getHeight()) / 2 + valueLayout.getLineBaseline(0);
+	}
+
+	/**
+	 * Draws the buttons and the value (if <code>valueLayout</code> isn't null)
+	 * into the content rectangle
+	 */
+	void draw(Canvas canvas, int left, int top, int right, int bottom,
+	          Layout valueLayout, boolean raiseEnabled, boolean lowerEnabled, int pressedZone) {
+
+		raiseDrawable.setState(stateFor(raiseEnabled, pressedZone == ZONE_RAISE));
+		raiseDrawable.setBounds(left, top, right, top + buttonHeight);
+		raiseDrawable.draw(canvas);
+
+		lowerDrawable.setState(stateFor(lowerEnabled, pressedZone == ZONE_LOWER));
+		lowerDrawable.setBounds(left, bottom - buttonHeight, right, bottom);
+		lowerDrawable.draw(canvas);
+
+		if (valueLayout != null) {
+			int textAreaHeight = bottom - top - 2 * buttonHeight;
+			int saveCount = canvas.save();
+			canvas.translate(left + (right - left - valueLayout.getWidth()) / 2,
+			                 top + buttonHeight + (textAreaHeight - valueLayout.getHeight()) / 2);
+			valueLayout.draw(canvas);
+			canvas.restoreToCount(saveCount);
+		}
+	}
+
+	/**
+	 * Draws the wheel: the strip of the view's wheel rows around <code>centerRow</code> shifted up 
+	 * by <code>offset</code> pixels. Each row takes {@link #getTextAreaHeight()}, 
+	 * the rows around the selected one are dimmed.
+	 * @param drawSelected if <code>false</code>, the place of the selected row is left empty
+	 */
+	void drawWheel(Canvas canvas, int left, int top, int right, int bottom, NumberSpinEdit view, 
+	               int centerRow, int offset, int minRow, int maxRow, 
+	               NumberSpinEdit.ValueConverter valueConverter, boolean drawSelected) {
+
+		int rowHeight = getTextAreaHeight();
+		int centerY = (top + bottom) / 2;
+		int window = (bottom - top) / 2 / rowHeight + 1;
+		int alpha = textPaint.getAlpha();
+
+		int saveCount = canvas.save();
+		canvas.clipRect(left, top, right, bottom);
+		for (int i = -window; i <= window; i++) {
+			int row = centerRow + i;
+			if (row < minRow || row > maxRow || (i == 0 && !drawSelected)) {
+				continue;
+			}
+
+			Layout layout = getValueLayout(view.getWheelRowValue(row), valueConverter);
+			int rowCenterY = centerY + i * rowHeight - offset;
+			boolean selected = Math.abs(rowCenterY - centerY) * 2 < rowHeight;
+			// The precomputed layouts have their own copies of the paint
+			TextPaint layoutPaint = layout.getPaint();
+			layoutPaint.setAlpha(selected ? alpha : alpha * WHEEL_DIMMED_ALPHA / 255);
+
+			int rowSaveCount = canvas.save();
+			canvas.translate(left + (right - left - layout.getWidth()) / 2, rowCenterY - layout.getHeight() / 2);
+			layout.draw(canvas);
+			canvas.restoreToCount(rowSaveCount);
+			layoutPaint.setAlpha(alpha);
+		}
+		canvas.restoreToCount(saveCount);
+	}
+
+	private static int[] stateFor(boolean enabled, boolean pressed) {
+		if (!enabled) {
+			return DISABLED_STATE_SET;
+		}
+		return pressed ? PRESSED_ENABLED_STATE_SET : ENABLED_STATE_SET;
+	}
+}
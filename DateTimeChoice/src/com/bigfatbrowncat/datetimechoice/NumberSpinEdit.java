@@ -1,80 +1,146 @@
 package com.bigfatbrowncat.datetimechoice;
 
+import java.util.Locale;
+
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.os.Build;
 import android.os.Handler;
+import android.os.Looper;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.text.Editable;
+import android.text.InputFilter;
+import android.text.InputType;
+import android.text.Layout;
+import android.text.Spanned;
 import android.text.TextWatcher;
 import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.Choreographer;
+import android.view.Gravity;
 import android.view.KeyEvent;
+import android.view.VelocityTracker;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
-import android.widget.Button;
+import android.view.ViewConfiguration;
+import android.view.inputmethod.InputMethodManager;
 import android.widget.EditText;
 import android.widget.ImageButton;
 import android.widget.LinearLayout;
+import android.widget.Scroller;
+import android.widget.TextView;
 
 public class NumberSpinEdit extends LinearLayout implements View.OnClickListener, 
                                                             View.OnFocusChangeListener, 
                                                             View.OnKeyListener, 
                                                             View.OnLongClickListener,
                                                             View.OnTouchListener,
+                                                            TextView.OnEditorActionListener,
                                                             TextWatcher {
 
-	public static class DayValueConverter implements ValueConverter {
+	public static class DayValueConverter implements CharSequenceValueConverter {
 
 		@Override
 		public String format(int value) {
-			String s = String.valueOf(value);
-			if (value < 10) s = "0" + s;
-			return s;
+			return PaddedNumberTable.format(value);
 		}
 
 		@Override
 		public int parse(String str) {
-			int value;
-			try {
-				value = Integer.parseInt(str);
-			} catch (NumberFormatException ex) {
-				value = 0;
-			}
-			return value;
+			return parse(str, 0, str.length());
+		}
+
+		@Override
+		public int parse(CharSequence text, int start, int end) {
+			return SpinValues.parse(text, start, end, 0);
+		}
+	}
+	
+	public static class MillisecondValueConverter implements CharSequenceValueConverter {
+
+		@Override
+		public String format(int value) {
+			return PaddedNumberTable.formatThreeDigits(value);
+		}
+
+		@Override
+		public int parse(String str) {
+			return parse(str, 0, str.length());
+		}
+
+		@Override
+		public int parse(CharSequence text, int start, int end) {
+			return SpinValues.parse(text, start, end, 0);
 		}
 	}
 	
-	public static class MonthValueConverter implements ValueConverter {
+	public static class MonthValueConverter implements CharSequenceValueConverter {
+		/**
+		 * The month names loaded for a locale. It's never changed once it's loaded,
+		 * so the layout thread can format the months while the view's thread reloads them.
+		 */
+		private static final class MonthNames {
+			final Locale locale;
+			final String[] names;
+			final PrefixTrie trie = new PrefixTrie();
+			
+			MonthNames(Locale locale, String[] names) {
+				this.locale = locale;
+				this.names = names;
+				for (int i = 0; i < names.length; i++) {
+					trie.put(names[i], i + 1);
+				}
+			}
+		}
+		
 		private Context context;
 		
+		// Cached for the locale they were loaded in
+		private volatile MonthNames monthNames;
+		
 		public MonthValueConverter(Context context) {
 			this.context = context;
 		}
 		
+		/**
+		 * Drops the cached month names, so that they are reloaded on the next call.
+		 */
+		public void invalidate() {
+			monthNames = null;
+		}
+		
+		private MonthNames loadMonthNames() {
+			Locale locale = context.getResources().getConfiguration().locale;
+			MonthNames names = monthNames;
+			if (names != null && (locale == names.locale || (locale != null && locale.equals(names.locale)))) {
+				return names;
+			}
+			
+			names = new MonthNames(locale, context.getResources().getStringArray(R.array.month_names));
+			monthNames = names;
+			return names;
+		}
+		
 		@Override
 		public String format(int value) {
-			String[] monthNames = context.getResources().getStringArray(R.array.month_names);
-			String s = monthNames[value - 1];
-			return s;
+			return loadMonthNames().names[value - 1];
 		}
 
 		@Override
 		public int parse(String str) {
-			String[] monthNames = context.getResources().getStringArray(R.array.month_names);
-			for (int i = 0; i > monthNames.length; i++) {
-				if (monthNames[i].startsWith(str)) {
-					return i;
-				}
-			}
-			
-			int value;
-			try {
-				value = Integer.parseInt(str);
-			} catch (NumberFormatException ex) {
-				value = 0;
+			return parse(str, 0, str.length());
+		}
+
+		@Override
+		public int parse(CharSequence text, int start, int end) {
+			int month = loadMonthNames().trie.find(text, start, end);
+			if (month != PrefixTrie.NOT_FOUND) {
+				return month;
 			}
-			return value;
+			return SpinValues.parse(text, start, end, 0);
 		}
 	}
 	
@@ -144,56 +210,109 @@ public class NumberSpinEdit extends LinearLayout implements View.OnClickListener
 	}
 	
 	
+	/**
+	 * Repeats raising or lowering while a button is held. 
+	 * 
+	 * The ticks follow the {@link SpinAcceleration}. On Jelly Bean and newer they are paced 
+	 * by the display frames, so the ticks which fall into the same frame are coalesced 
+	 * into one value change (and one <code>onChanged</code> notification).
+	 */
 	private static class UpDownHandler extends Handler {
 		private NumberSpinEdit view;
 		private boolean raiseContinuously;
 		private boolean lowerContinuously;
-		private int delay;
+		
+		private long pressTime;
+		private long nextTickTime;
 
 		private Runnable upDownRunnable;
+		private FrameTicker frameTicker;
 		
-		public UpDownHandler(NumberSpinEdit view, int delay) {
-			super();
+		public UpDownHandler(NumberSpinEdit view) {
+			// The view may be built on a background thread (see NumberSpinEditPool)
+			super(Looper.getMainLooper());
 			this.view = view;
-			this.delay = delay;
 			
-			upDownRunnable = new Runnable() {
-				
-				@Override
-				public void run() {
-					boolean doPostDelayed = false;
-					
-					if (raiseContinuously) {
-						if (UpDownHandler.this.view.raiseValue()) {
-							doPostDelayed = true;
-						} else {
-							raiseContinuously = false;
-						}
-					}
-					
-					if (lowerContinuously) {
-						if (UpDownHandler.this.view.lowerValue()) {
-							doPostDelayed = true;
-						} else {
-							lowerContinuously = false;
-						}
-					}
+			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+				frameTicker = new FrameTicker(this);
+			} else {
+				upDownRunnable = new Runnable() {
 					
-					if (doPostDelayed) {
-						postDelayed(this, UpDownHandler.this.delay);
+					@Override
+					public void run() {
+						tick(now());
 					}
+				};
+			}
+		}
+		
+		private static long now() {
+			// The same time base as the one of the Choreographer frames
+			return System.nanoTime() / 1000000;
+		}
+		
+		void tick(long time) {
+			if (!raiseContinuously && !lowerContinuously) {
+				return;
+			}
+			
+			if (time >= nextTickTime) {
+				SpinAcceleration acceleration = view.getAcceleration();
+				long held = time - pressTime;
+				long interval = acceleration.getInterval(held);
+				long ticks = 1 + (time - nextTickTime) / interval;
+				nextTickTime += ticks * interval;
+				
+				int distance = (int)Math.min(ticks * acceleration.getStep(held), Integer.MAX_VALUE);
+				
+				long metricsToken = PickerMetrics.begin(PickerMetrics.SECTION_AUTO_REPEAT_TICK);
+				boolean changed;
+				if (raiseContinuously) {
+					changed = view.raiseValue(distance);
+				} else {
+					changed = view.lowerValue(distance);
 				}
-			};
+				PickerMetrics.end(PickerMetrics.SECTION_AUTO_REPEAT_TICK, metricsToken);
+				
+				if (!changed) {
+					raiseContinuously = false;
+					lowerContinuously = false;
+					return;
+				}
+			}
+			
+			if (frameTicker != null) {
+				frameTicker.postNextFrame();
+			} else {
+				postDelayed(upDownRunnable, nextTickTime - time);
+			}
+		}
+		
+		private void start() {
+			pressTime = now();
+			nextTickTime = pressTime;
+			cancel();
+			tick(pressTime);
+		}
+		
+		private void cancel() {
+			if (frameTicker != null) {
+				frameTicker.cancel();
+			} else {
+				removeCallbacks(upDownRunnable);
+			}
 		}
 		
 		public void startLowering() {
+			raiseContinuously = false;
 			lowerContinuously = true;
-			post(upDownRunnable);
+			start();
 		}
 		
 		public void startRaising() {
+			lowerContinuously = false;
 			raiseContinuously = true;
-			post(upDownRunnable);
+			start();
 		}
 		
 		public void stopLowering() {
@@ -206,12 +325,105 @@ public class NumberSpinEdit extends LinearLayout implements View.OnClickListener
 		
 	}
 	
+	/**
+	 * Delivers the {@link UpDownHandler} ticks on the display frames (Jelly Bean and newer)
+	 */
+	private static class FrameTicker implements Choreographer.FrameCallback {
+		private final UpDownHandler handler;
+		
+		FrameTicker(UpDownHandler handler) {
+			this.handler = handler;
+		}
+		
+		void postNextFrame() {
+			Choreographer.getInstance().postFrameCallback(this);
+		}
+		
+		void cancel() {
+			Choreographer.getInstance().removeFrameCallback(this);
+		}
+		
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			handler.tick(frameTimeNanos / 1000000);
+		}
+	}
+	
+	public interface ValueSkipper {
+		/**
+		 * Lets the steps skip the values which aren't allowed
+		 * @param value the value a step has come to
+		 * @param raising the direction of the step
+		 * @return the value the step should stop at: not lower than <code>value</code> if raising, 
+		 * not higher otherwise. The current value cancels the step.
+		 */
+		public int skip(NumberSpinEdit view, int value, boolean raising);
+	}
+	
 	public interface ValueConverter {
+		/**
+		 * Is called on a background thread too, when the values are measured 
+		 * in advance, so it should be thread safe
+		 */
 		public String format(int value);
 		public int parse(String str);
 	}
 	
+	/**
+	 * The converter which parses the edit box text in place, 
+	 * without making a string of it on every keystroke
+	 */
+	public interface CharSequenceValueConverter extends ValueConverter {
+		public int parse(CharSequence text, int start, int end);
+	}
+	
+	/**
+	 * Rejects the keystrokes which would make the number longer than <code>ems</code> 
+	 * digits or higher than the highest value. The text which isn't a number 
+	 * (a month name, for instance) is let through to the converter.
+	 */
+	private class RangeInputFilter implements InputFilter {
+		
+		@Override
+		public CharSequence filter(CharSequence source, int start, int end, Spanned dest, int dstart, int dend) {
+			if (isSelfEditing) {
+				return null;
+			}
+			
+			// Walking the text as it would be after the edit
+			int insertedEnd = dstart + (end - start);
+			int length = insertedEnd + dest.length() - dend;
+			int digits = 0;
+			long number = 0;
+			for (int i = 0; i < length; i++) {
+				char c;
+				if (i < dstart) {
+					c = dest.charAt(i);
+				} else if (i < insertedEnd) {
+					c = source.charAt(start + i - dstart);
+				} else {
+					c = dest.charAt(dend + i - insertedEnd);
+				}
+				
+				if (c < '0' || c > '9') {
+					return null;
+				}
+				digits++;
+				if (digits > ems) {
+					return "";
+				}
+				number = number * 10 + (c - '0');
+			}
+			
+			if (digits > 0 && number > maxValue) {
+				return "";
+			}
+			return null;
+		}
+	}
+	
 	private UpDownHandler upDownHandler;
+	private SpinAcceleration acceleration = SpinAcceleration.createDefault();
 	private ValueConverter valueConverter;
 	
 	private EditText number_editText;
@@ -222,50 +434,172 @@ public class NumberSpinEdit extends LinearLayout implements View.OnClickListener
 	private int value;
 	private int minValue;
 	private int maxValue;
+	private int step = 1;
+	private boolean stepAligned = true;
 	
 	private OnValueChangeListener valueChangeListener;
+	private ValueSkipper valueSkipper;
 	private boolean isSelfEditing;
 	
+	// The typed value waiting for commitEdit()
+	private boolean editPending;
+	private int editValue;
+	
+	// Batched updates state (see beginUpdate() / endUpdate())
+	private int updateDepth;
+	private boolean valueDirty;
+	private boolean buttonsEnabledDirty;
+	
+	// Lightweight mode state (see setLightweight())
+	private boolean lightweight;
+	private LightweightSpinRenderer renderer;
+	private int pressedZone = LightweightSpinRenderer.ZONE_NONE;
+	private boolean pressedLong;
+	
+	// Wheel mode state (see setWheel())
+	private boolean wheel;
+	private Scroller wheelScroller;
+	private VelocityTracker velocityTracker;
+	private int touchSlop;
+	private int minFlingVelocity;
+	private int maxFlingVelocity;
+	private float downTouchY;
+	private float lastTouchY;
+	// The wheel is dragged or flung, the value isn't committed until it settles
+	private boolean wheelScrolling;
+	private boolean wheelDragging;
+	// The wheel position in pixels is counted from the value it has started at
+	private int wheelAnchor;
+	private int wheelPosition;
+	
+	private final Runnable longPressRunnable = new Runnable() {
+		
+		@Override
+		public void run() {
+			pressedLong = true;
+			if (pressedZone == LightweightSpinRenderer.ZONE_RAISE) {
+				upDownHandler.startRaising();
+			} else if (pressedZone == LightweightSpinRenderer.ZONE_LOWER) {
+				upDownHandler.startLowering();
+			}
+		}
+	};
+	
 	public NumberSpinEdit(Context context) {
+		this(context, false);
+	}
+	
+	/**
+	 * @param lightweight see {@link #setLightweight(boolean)}
+	 */
+	public NumberSpinEdit(Context context, boolean lightweight) {
 		super(context);
+		this.lightweight = lightweight;
 		initLayout();
 
 		valueConverter = new DayValueConverter();
 
 		this.ems = 2;
 		this.maxValue = 0;
-		this.maxValue = (int)(Math.pow(10, ems) - 1);
+		this.maxValue = SpinValues.getHighestValue(ems);
 		this.setValue(0);
 
-		upDownHandler = new UpDownHandler(this, 100);		// TODO Magic number! 100 msec
+		upDownHandler = new UpDownHandler(this);
 		updateButtonsEnabled();
 	}
 
 	public NumberSpinEdit(Context context, AttributeSet attrs) {
 		super(context, attrs);
+
+		TypedArray attributes = context.getTheme().obtainStyledAttributes(attrs, R.styleable.NumberSpinEdit, 0, 0);
+		boolean wheel = attributes.getBoolean(R.styleable.NumberSpinEdit_wheel, false);
+		lightweight = attributes.getBoolean(R.styleable.NumberSpinEdit_lightweight, false) || wheel;
 		initLayout();
 
 		valueConverter = new DayValueConverter();
 
-		TypedArray attributes = context.getTheme().obtainStyledAttributes(attrs, R.styleable.NumberSpinEdit, 0, 0);
+		applyAttributes(attributes);
+		attributes.recycle();
+		
+		upDownHandler = new UpDownHandler(this);
+		updateButtonsEnabled();
+		setWheel(wheel);
+	}
+	
+	private void applyAttributes(TypedArray attributes) {
 		setEms(attributes.getInteger(R.styleable.NumberSpinEdit_ems, 2));
 		setMinValue(attributes.getInteger(R.styleable.NumberSpinEdit_minValue, 0));
-		setMaxValue(attributes.getInteger(R.styleable.NumberSpinEdit_maxValue, (int)(Math.pow(10, ems) - 1)));
+		setMaxValue(attributes.getInteger(R.styleable.NumberSpinEdit_maxValue, SpinValues.getHighestValue(ems)));
 		setValue(attributes.getInteger(R.styleable.NumberSpinEdit_value, minValue));
+		setStep(attributes.getInteger(R.styleable.NumberSpinEdit_step, 1));
+		setStepAligned(attributes.getBoolean(R.styleable.NumberSpinEdit_stepAligned, true));
+	}
+	
+	/**
+	 * Sets up an already built view (taken from {@link NumberSpinEditPool}) 
+	 * as if it was inflated with the attributes
+	 */
+	void applyAttributes(Context context, AttributeSet attrs) {
+		TypedArray attributes = context.getTheme().obtainStyledAttributes(attrs, R.styleable.NumberSpinEdit, 0, 0);
+		setLightweight(attributes.getBoolean(R.styleable.NumberSpinEdit_lightweight, lightweight));
+		setWheel(attributes.getBoolean(R.styleable.NumberSpinEdit_wheel, wheel));
+		applyAttributes(attributes);
 		attributes.recycle();
 		
-		upDownHandler = new UpDownHandler(this, 100);		// TODO Magic number! 100 msec
-		updateButtonsEnabled();
+		setId(attrs.getIdAttributeResourceValue(NO_ID));
+	}
+	
+	/**
+	 * Brings the view back to the state of a freshly created one 
+	 * before it is put into {@link NumberSpinEditPool}
+	 */
+	void resetForPool() {
+		upDownHandler.stopRaising();
+		upDownHandler.stopLowering();
+		removeCallbacks(longPressRunnable);
+		pressedZone = LightweightSpinRenderer.ZONE_NONE;
+		if (lightweight && number_editText != null) {
+			number_editText.setVisibility(GONE);
+		}
+		setWheel(false);
+		
+		valueChangeListener = null;
+		valueSkipper = null;
+		acceleration = SpinAcceleration.createDefault();
+		setValueConverter(new DayValueConverter());
+		
+		setId(NO_ID);
+		setEnabled(true);
+		setVisibility(VISIBLE);
+		setEms(2);
+		setRange(0, SpinValues.getHighestValue(ems));
+		setValue(0);
+		setStep(1);
+		setStepAligned(true);
 	}
 
 	@Override
 	public void afterTextChanged(Editable editable) {
 		if (!isSelfEditing) {
 			if (editable == number_editText.getText()) {
-				changeValue();
+				// Only parsing here. The value is committed when the user leaves the edit box
+				editValue = parseValue(editable);
+				editPending = true;
 			}
 		}
 	}
+	
+	/**
+	 * Commits the value typed into the edit box, if it hasn't been committed yet.
+	 * It happens by itself when the edit box loses focus, on the IME action, 
+	 * on Enter and before the buttons change the value.
+	 */
+	public void commitEdit() {
+		if (editPending) {
+			// changeValue() takes the parsed editValue and clears the flag
+			changeValue();
+		}
+	}
 
 	@Override
 	public void beforeTextChanged(CharSequence arg0, int arg1, int arg2, int arg3) {
@@ -274,18 +608,26 @@ public class NumberSpinEdit extends LinearLayout implements View.OnClickListener
 	}
 
 	protected void changeValue() {
-		int newValue = valueConverter.parse(number_editText.getText().toString());
+		long metricsToken = PickerMetrics.begin(PickerMetrics.SECTION_CHANGE_VALUE);
+		int newValue = editPending ? editValue : parseValue(number_editText.getText());
+		editPending = false;
 		
 		boolean commit = true;
 		boolean updateEditText = false;
 		
-		int newEms = newValue != 0 ? (int)Math.log10(newValue) + 1 : 1;
-		
-		if (newEms > ems) {
+		if (SpinValues.countDigits(newValue) > ems) {
 			newValue = maxValue;
 			updateEditText = true;
 		}
 		
+		if (stepAligned && step > 1) {
+			int snappedValue = SpinValues.snap(newValue, step, minValue, maxValue);
+			if (snappedValue != newValue) {
+				newValue = snappedValue;
+				updateEditText = true;
+			}
+		}
+		
 		if (valueChangeListener != null && newValue != value) {
 			if (!valueChangeListener.onChanging(this, newValue)) {
 				commit = false;
@@ -293,13 +635,7 @@ public class NumberSpinEdit extends LinearLayout implements View.OnClickListener
 			}
 		}
 		
-		if (newValue > maxValue) {
-			newValue = maxValue;
-		}
-		
-		if (newValue < minValue) {
-			newValue = minValue;
-		}
+		newValue = SpinValues.clamp(newValue, minValue, maxValue);
 		
 		if (commit) {
 			if (updateEditText) {
@@ -318,17 +654,73 @@ public class NumberSpinEdit extends LinearLayout implements View.OnClickListener
 		}
 		
 		updateButtonsEnabled();
+		PickerMetrics.end(PickerMetrics.SECTION_CHANGE_VALUE, metricsToken);
+	}
+	
+	/**
+	 * {@link ValueConverter#format(int)} measured by {@link PickerMetrics}
+	 */
+	static String formatValue(ValueConverter valueConverter, int value) {
+		long metricsToken = PickerMetrics.begin(PickerMetrics.SECTION_FORMAT);
+		String text = valueConverter.format(value);
+		PickerMetrics.end(PickerMetrics.SECTION_FORMAT, metricsToken);
+		return text;
+	}
+	
+	private int parseValue(CharSequence text) {
+		long metricsToken = PickerMetrics.begin(PickerMetrics.SECTION_PARSE);
+		int value;
+		if (valueConverter instanceof CharSequenceValueConverter) {
+			value = ((CharSequenceValueConverter)valueConverter).parse(text, 0, text.length());
+		} else {
+			value = valueConverter.parse(text.toString());
+		}
+		PickerMetrics.end(PickerMetrics.SECTION_PARSE, metricsToken);
+		return value;
 	}
 
 	@Override
 	public int getBaseline() {
-		if (number_editText != null) {
+		if (lightweight) {
+			Layout valueLayout = renderer.getValueLayout(value, valueConverter);
+			return getPaddingTop() + renderer.getBaseline(valueLayout, getContentHeight());
+		} else if (number_editText != null) {
 			return number_editText.getBaseline() + number_editText.getTop();
 		} else {
 			return super.getBaseline();
 		}
 	}
 
+	/**
+	 * Starts a batch of changes. Until the matching {@link #endUpdate()} call
+	 * the edit box text and the buttons state aren't touched, so that
+	 * several setter calls result in one text write and one buttons update.
+	 * The calls may be nested.
+	 */
+	public void beginUpdate() {
+		updateDepth++;
+	}
+
+	/**
+	 * Finishes the batch of changes started by {@link #beginUpdate()}
+	 * and applies the pending updates if it was the outermost one.
+	 */
+	public void endUpdate() {
+		if (updateDepth == 0) {
+			throw new IllegalStateException("endUpdate() called without beginUpdate()");
+		}
+		
+		updateDepth--;
+		if (updateDepth == 0) {
+			if (valueDirty) {
+				updateValue();
+			}
+			if (buttonsEnabledDirty) {
+				updateButtonsEnabled();
+			}
+		}
+	}
+
 	public int getEms() {
 		return ems;
 	}
@@ -345,11 +737,61 @@ public class NumberSpinEdit extends LinearLayout implements View.OnClickListener
 		return value;
 	}
 
+	public int getStep() {
+		return step;
+	}
+	
+	/**
+	 * Sets how much a button press (or a wheel row) changes the value
+	 */
+	public void setStep(int step) {
+		if (step < 1) {
+			throw new IllegalArgumentException("The step should be positive");
+		}
+		this.step = step;
+		invalidate();
+	}
+	
+	public boolean isStepAligned() {
+		return stepAligned;
+	}
+	
+	/**
+	 * If the steps are aligned (it's the default), the buttons move the value 
+	 * between the multiples of the step (7 goes up to 15 with the step of 15, not to 22) 
+	 * and the typed values are snapped to the nearest multiple.
+	 */
+	public void setStepAligned(boolean stepAligned) {
+		this.stepAligned = stepAligned;
+		invalidate();
+	}
+	
+	public SpinAcceleration getAcceleration() {
+		return acceleration;
+	}
+
+	/**
+	 * Sets how the auto-repeat speeds up while a button is held
+	 */
+	public void setAcceleration(SpinAcceleration acceleration) {
+		this.acceleration = acceleration;
+	}
+
 	public ValueConverter getValueConverter() {
 		return valueConverter;
 	}
 
 	private void initLayout() {
+		setWillNotDraw(!lightweight);
+		if (lightweight) {
+			// The edit box is created only when the user starts typing
+			renderer = new LightweightSpinRenderer(getContext());
+			precomputeValueLayouts();
+			return;
+		}
+		
+		// The buttons and the edit box are merged right into the spin edit
+		setOrientation(VERTICAL);
 		LayoutInflater layoutInflater = (LayoutInflater)this.getContext().getSystemService(Context.LAYOUT_INFLATER_SERVICE);
 		layoutInflater.inflate(R.layout.view_number_spin_edit, this, true);
 		
@@ -357,12 +799,9 @@ public class NumberSpinEdit extends LinearLayout implements View.OnClickListener
 		raise_button = (ImageButton)findViewById(R.id.raise_button);
 		lower_button = (ImageButton)findViewById(R.id.lower_button);
 		
+		attachEditText();
+		
 		if (!isInEditMode()) {
-			number_editText.addTextChangedListener(this);
-			number_editText.setOnFocusChangeListener(this);
-			number_editText.setOnKeyListener(this);
-			number_editText.setSelectAllOnFocus(true);
-			
 			raise_button.setOnClickListener(this);
 			raise_button.setOnLongClickListener(this);
 			raise_button.setOnTouchListener(this);
@@ -377,8 +816,428 @@ public class NumberSpinEdit extends LinearLayout implements View.OnClickListener
 		number_editText.setId(NO_ID);
 	}
 	
+	private void attachEditText() {
+		if (!isInEditMode()) {
+			number_editText.addTextChangedListener(this);
+			number_editText.setOnFocusChangeListener(this);
+			number_editText.setOnKeyListener(this);
+			number_editText.setOnEditorActionListener(this);
+			
+			InputFilter[] filters = number_editText.getFilters();
+			InputFilter[] newFilters = new InputFilter[filters.length + 1];
+			System.arraycopy(filters, 0, newFilters, 0, filters.length);
+			newFilters[filters.length] = new RangeInputFilter();
+			number_editText.setFilters(newFilters);
+			number_editText.setSelectAllOnFocus(true);
+		}
+	}
+	
+	public boolean isLightweight() {
+		return lightweight;
+	}
+	
+	/**
+	 * Switches the rendering mode. In the lightweight mode the spin edit has no child views: 
+	 * it draws the buttons and the value itself and creates an edit box only 
+	 * when the user taps the value in order to type it.
+	 */
+	public void setLightweight(boolean lightweight) {
+		if (this.lightweight == lightweight) {
+			return;
+		}
+		
+		if (upDownHandler != null) {
+			upDownHandler.stopRaising();
+			upDownHandler.stopLowering();
+		}
+		removeCallbacks(longPressRunnable);
+		pressedZone = LightweightSpinRenderer.ZONE_NONE;
+		if (!lightweight) {
+			setWheel(false);
+		}
+		
+		removeAllViews();
+		number_editText = null;
+		raise_button = null;
+		lower_button = null;
+		renderer = null;
+		
+		this.lightweight = lightweight;
+		initLayout();
+		setEms(ems);
+		
+		updateValue();
+		updateButtonsEnabled();
+		requestLayout();
+	}
+	
+	public boolean isWheel() {
+		return wheel;
+	}
+	
+	/**
+	 * Switches the wheel mode. The wheel shows the strip of the neighbouring values 
+	 * which the user drags or flings, it snaps to a value when it stops. The value is 
+	 * committed (and the listener is notified) only then, not on every value passed by.
+	 * A tap above or below the selected value lowers or raises it by one.
+	 * 
+	 * The wheel is drawn in the lightweight mode only, so it's turned on as well.
+	 */
+	public void setWheel(boolean wheel) {
+		if (this.wheel == wheel) {
+			return;
+		}
+		
+		if (wheel) {
+			setLightweight(true);
+			if (wheelScroller == null) {
+				ViewConfiguration configuration = ViewConfiguration.get(getContext());
+				touchSlop = configuration.getScaledTouchSlop();
+				minFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+				maxFlingVelocity = configuration.getScaledMaximumFlingVelocity();
+				wheelScroller = new Scroller(getContext());
+			}
+		} else {
+			wheelScroller.forceFinished(true);
+			wheelScrolling = false;
+			wheelDragging = false;
+		}
+		this.wheel = wheel;
+		invalidate();
+	}
+	
+	/*
+	 * The wheel rows are the steps from the value the wheel has started at: 
+	 * the row 1 is one raising step, the row -1 is one lowering step and so on.
+	 */
+	
+	private int getWheelMinRow() {
+		return -SpinValues.countSteps(wheelAnchor, step, stepAligned, minValue, maxValue, false);
+	}
+	
+	private int getWheelMaxRow() {
+		return SpinValues.countSteps(wheelAnchor, step, stepAligned, minValue, maxValue, true);
+	}
+	
+	int getWheelRowValue(int row) {
+		if (row >= 0) {
+			return SpinValues.stepBy(wheelAnchor, row, step, stepAligned, wheelAnchor, maxValue);
+		} else {
+			return SpinValues.stepBy(wheelAnchor, row, step, stepAligned, minValue, wheelAnchor);
+		}
+	}
+	
+	/**
+	 * @return the row the wheel is at (the nearest to the center one)
+	 */
+	private int getWheelRow(int position) {
+		int rowHeight = renderer.getTextAreaHeight();
+		long shifted = (long)position + rowHeight / 2;
+		long row = shifted >= 0 ? shifted / rowHeight : -((-shifted + rowHeight - 1) / rowHeight);
+		return (int)Math.max(getWheelMinRow(), Math.min(getWheelMaxRow(), row));
+	}
+	
+	private int getWheelPosition(int row) {
+		long position = (long)row * renderer.getTextAreaHeight();
+		return (int)Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, position));
+	}
+	
+	private void scrollWheelBy(int distance) {
+		long position = (long)wheelPosition + distance;
+		position = Math.max(getWheelPosition(getWheelMinRow()), Math.min(getWheelPosition(getWheelMaxRow()), position));
+		wheelPosition = (int)position;
+		invalidate();
+	}
+	
+	private void flingWheel(int velocity) {
+		wheelScroller.fling(0, wheelPosition, 0, velocity, 0, 0, 
+		                    getWheelPosition(getWheelMinRow()), getWheelPosition(getWheelMaxRow()));
+		
+		// Stopping right on a row
+		int finalRow = getWheelRow(wheelScroller.getFinalY());
+		wheelScroller.setFinalY(getWheelPosition(finalRow));
+		renderer.prepareWheelLayouts(this, getWheelRow(wheelPosition), finalRow, valueConverter);
+		invalidate();
+	}
+	
+	private void snapWheel() {
+		int distance = getWheelPosition(getWheelRow(wheelPosition)) - wheelPosition;
+		if (distance == 0) {
+			settleWheel();
+		} else {
+			wheelScroller.startScroll(0, wheelPosition, 0, distance);
+			invalidate();
+		}
+	}
+	
+	private void settleWheel() {
+		wheelScrolling = false;
+		
+		// Committing the value only now, so that the bounds are checked once per fling
+		int row = getWheelRow(wheelPosition);
+		if (row > 0) {
+			raiseValue(row);
+		} else if (row < 0) {
+			lowerValue(-row);
+		}
+		invalidate();
+	}
+	
+	@Override
+	public void computeScroll() {
+		if (!wheelScrolling || wheelDragging) {
+			return;
+		}
+		
+		if (wheelScroller.computeScrollOffset()) {
+			wheelPosition = wheelScroller.getCurrY();
+			invalidate();
+		} else {
+			settleWheel();
+		}
+	}
+	
+	private boolean onWheelTouchEvent(MotionEvent event) {
+		if (velocityTracker == null) {
+			velocityTracker = VelocityTracker.obtain();
+		}
+		velocityTracker.addMovement(event);
+		
+		switch (event.getAction()) {
+		case MotionEvent.ACTION_DOWN:
+			downTouchY = event.getY();
+			lastTouchY = downTouchY;
+			if (wheelScrolling) {
+				// Catching the running fling
+				wheelScroller.forceFinished(true);
+				wheelDragging = true;
+			}
+			return true;
+			
+		case MotionEvent.ACTION_MOVE:
+			float y = event.getY();
+			if (!wheelDragging && Math.abs(y - downTouchY) > touchSlop) {
+				wheelDragging = true;
+				wheelScrolling = true;
+				wheelAnchor = value;
+				wheelPosition = 0;
+				lastTouchY = y;
+				if (getParent() != null) {
+					getParent().requestDisallowInterceptTouchEvent(true);
+				}
+			}
+			if (wheelDragging) {
+				// The fractions of a pixel are kept for the next move
+				int distance = (int)(lastTouchY - y);
+				lastTouchY -= distance;
+				scrollWheelBy(distance);
+			}
+			return true;
+			
+		case MotionEvent.ACTION_UP:
+			if (wheelDragging) {
+				wheelDragging = false;
+				velocityTracker.computeCurrentVelocity(1000, maxFlingVelocity);
+				int velocity = (int)velocityTracker.getYVelocity();
+				if (Math.abs(velocity) > minFlingVelocity) {
+					flingWheel(-velocity);
+				} else {
+					snapWheel();
+				}
+			} else {
+				// The smaller values are above the selected one
+				int zone = renderer.hitTest((int)event.getY() - getPaddingTop(), getContentHeight());
+				if (zone == LightweightSpinRenderer.ZONE_RAISE) {
+					lowerValue();
+				} else if (zone == LightweightSpinRenderer.ZONE_LOWER) {
+					raiseValue();
+				} else if (zone == LightweightSpinRenderer.ZONE_TEXT) {
+					startEditing();
+				}
+			}
+			velocityTracker.recycle();
+			velocityTracker = null;
+			return true;
+			
+		case MotionEvent.ACTION_CANCEL:
+			if (wheelDragging) {
+				wheelDragging = false;
+				snapWheel();
+			}
+			velocityTracker.recycle();
+			velocityTracker = null;
+			return true;
+		}
+		return true;
+	}
+	
+	private boolean isEditing() {
+		return number_editText != null && number_editText.getVisibility() == VISIBLE;
+	}
+	
+	/**
+	 * Shows the edit box over the value (lightweight mode only)
+	 */
+	private void startEditing() {
+		if (number_editText == null) {
+			number_editText = new EditText(getContext());
+			number_editText.setGravity(Gravity.CENTER);
+			number_editText.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_CLASS_TEXT);
+			number_editText.setTextSize(TypedValue.COMPLEX_UNIT_PX, renderer.getTextSize());
+			int padding = renderer.getTextPadding();
+			number_editText.setPadding(padding, padding, padding, padding);
+			attachEditText();
+			addView(number_editText);
+		}
+		
+		number_editText.setVisibility(VISIBLE);
+		updateValue();
+		number_editText.requestFocus();
+		
+		InputMethodManager inputMethodManager = (InputMethodManager)getContext().getSystemService(Context.INPUT_METHOD_SERVICE);
+		inputMethodManager.showSoftInput(number_editText, InputMethodManager.SHOW_IMPLICIT);
+	}
+	
+	private void stopEditing() {
+		number_editText.setVisibility(GONE);
+		invalidate();
+	}
+	
+	private int getContentHeight() {
+		int height = getHeight() - getPaddingTop() - getPaddingBottom();
+		return height > 0 ? height : renderer.getContentHeight();
+	}
+	
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		if (!lightweight) {
+			super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+			return;
+		}
+		
+		int width = renderer.getContentWidth(ems) + getPaddingLeft() + getPaddingRight();
+		int height = renderer.getContentHeight() + getPaddingTop() + getPaddingBottom();
+		width = resolveSize(width, widthMeasureSpec);
+		height = resolveSize(height, heightMeasureSpec);
+		
+		if (isEditing()) {
+			int textAreaWidth = width - getPaddingLeft() - getPaddingRight();
+			int textAreaHeight = height - getPaddingTop() - getPaddingBottom() - 2 * renderer.getButtonHeight();
+			number_editText.measure(MeasureSpec.makeMeasureSpec(textAreaWidth, MeasureSpec.EXACTLY), 
+			                        MeasureSpec.makeMeasureSpec(textAreaHeight, MeasureSpec.EXACTLY));
+		}
+		
+		setMeasuredDimension(width, height);
+	}
+	
+	@Override
+	protected void onLayout(boolean changed, int l, int t, int r, int b) {
+		if (!lightweight) {
+			super.onLayout(changed, l, t, r, b);
+			return;
+		}
+		
+		if (isEditing()) {
+			int left = getPaddingLeft();
+			int top = getPaddingTop() + renderer.getButtonHeight();
+			number_editText.layout(left, top, 
+			                       left + number_editText.getMeasuredWidth(), 
+			                       top + number_editText.getMeasuredHeight());
+		}
+	}
+	
+	@Override
+	protected void onDraw(Canvas canvas) {
+		super.onDraw(canvas);
+		if (!lightweight) {
+			return;
+		}
+		
+		if (wheel) {
+			int centerRow = 0;
+			int offset = 0;
+			if (wheelScrolling) {
+				centerRow = getWheelRow(wheelPosition);
+				offset = wheelPosition - getWheelPosition(centerRow);
+			} else {
+				wheelAnchor = value;
+			}
+			renderer.drawWheel(canvas, getPaddingLeft(), getPaddingTop(), 
+			                   getWidth() - getPaddingRight(), getHeight() - getPaddingBottom(), 
+			                   this, centerRow, offset, getWheelMinRow(), getWheelMaxRow(), 
+			                   valueConverter, !isEditing());
+			return;
+		}
+		
+		Layout valueLayout = isEditing() ? null : renderer.getValueLayout(value, valueConverter);
+		renderer.draw(canvas, getPaddingLeft(), getPaddingTop(), 
+		              getWidth() - getPaddingRight(), getHeight() - getPaddingBottom(), 
+		              valueLayout, value < maxValue, value > minValue, pressedZone);
+	}
+	
+	@Override
+	public boolean onTouchEvent(MotionEvent event) {
+		if (!lightweight || !isEnabled()) {
+			return super.onTouchEvent(event);
+		}
+		if (wheel) {
+			return onWheelTouchEvent(event);
+		}
+		
+		switch (event.getAction()) {
+		case MotionEvent.ACTION_DOWN:
+			pressedZone = renderer.hitTest((int)event.getY() - getPaddingTop(), getContentHeight());
+			pressedLong = false;
+			if (pressedZone == LightweightSpinRenderer.ZONE_RAISE || pressedZone == LightweightSpinRenderer.ZONE_LOWER) {
+				postDelayed(longPressRunnable, ViewConfiguration.getLongPressTimeout());
+			}
+			invalidate();
+			return pressedZone != LightweightSpinRenderer.ZONE_NONE;
+			
+		case MotionEvent.ACTION_UP:
+			removeCallbacks(longPressRunnable);
+			if (!pressedLong) {
+				if (pressedZone == LightweightSpinRenderer.ZONE_RAISE) {
+					raiseValue();
+				} else if (pressedZone == LightweightSpinRenderer.ZONE_LOWER) {
+					lowerValue();
+				} else if (pressedZone == LightweightSpinRenderer.ZONE_TEXT) {
+					startEditing();
+				}
+			}
+			releasePressed();
+			return true;
+			
+		case MotionEvent.ACTION_CANCEL:
+			removeCallbacks(longPressRunnable);
+			releasePressed();
+			return true;
+		}
+		return true;
+	}
+	
+	private void releasePressed() {
+		upDownHandler.stopRaising();
+		upDownHandler.stopLowering();
+		pressedZone = LightweightSpinRenderer.ZONE_NONE;
+		invalidate();
+	}
+	
 	protected boolean lowerValue() {
-		int newValue = value - 1;
+		return lowerValue(1);
+	}
+	
+	/**
+	 * Lowers the value by <code>steps</code> steps (see {@link #setStep(int)}), stopping at the lowest value
+	 * @return <code>true</code> if the value has been changed
+	 */
+	protected boolean lowerValue(int steps) {
+		commitEdit();
+		int newValue = SpinValues.stepBy(value, -steps, step, stepAligned, minValue, value);
+		if (valueSkipper != null && newValue != value) {
+			newValue = SpinValues.clamp(valueSkipper.skip(this, newValue, false), minValue, value);
+		}
+		
 		boolean commit = true;
 		if (valueChangeListener != null) {
 			valueChangeListener.onLowering(this);
@@ -387,10 +1246,6 @@ public class NumberSpinEdit extends LinearLayout implements View.OnClickListener
 			}
 		}
 		
-		if (newValue < minValue) {
-			newValue = minValue;
-		}
-		
 		boolean changed = false;
 		if (commit && newValue != value)
 		{
@@ -417,6 +1272,12 @@ public class NumberSpinEdit extends LinearLayout implements View.OnClickListener
 
 	@Override
 	public void onFocusChange(View v, boolean hasFocus) {
+		if (!hasFocus) {
+			commitEdit();
+			if (lightweight) {
+				stopEditing();
+			}
+		}
 		updateValue();
 		if (this.valueChangeListener != null) valueChangeListener.onValueUpdated(this);
 	}
@@ -424,6 +1285,7 @@ public class NumberSpinEdit extends LinearLayout implements View.OnClickListener
 	@Override
 	public boolean onKey(View v, int keyCode, KeyEvent event) {
 		if (keyCode == KeyEvent.KEYCODE_ENTER) {
+			commitEdit();
 			setValue(value);
 		} else if (keyCode == KeyEvent.KEYCODE_DPAD_UP) {
 			raiseValue();
@@ -433,6 +1295,13 @@ public class NumberSpinEdit extends LinearLayout implements View.OnClickListener
 		return false;
 	}
 
+	@Override
+	public boolean onEditorAction(TextView v, int actionId, KeyEvent event) {
+		commitEdit();
+		// Letting the edit box perform the action itself (moving the focus, hiding the keyboard)
+		return false;
+	}
+
 	@Override
 	public boolean onLongClick(View v) {
 		if (v.getId() == R.id.raise_button) {
@@ -487,7 +1356,20 @@ public class NumberSpinEdit extends LinearLayout implements View.OnClickListener
 
 	
 	protected boolean raiseValue() {
-		int newValue = value + 1;
+		return raiseValue(1);
+	}
+	
+	/**
+	 * Raises the value by <code>steps</code> steps (see {@link #setStep(int)}), stopping at the highest value
+	 * @return <code>true</code> if the value has been changed
+	 */
+	protected boolean raiseValue(int steps) {
+		commitEdit();
+		int newValue = SpinValues.stepBy(value, steps, step, stepAligned, value, maxValue);
+		if (valueSkipper != null && newValue != value) {
+			newValue = SpinValues.clamp(valueSkipper.skip(this, newValue, true), value, maxValue);
+		}
+		
 		boolean commit = true;
 		if (valueChangeListener != null) {
 			valueChangeListener.onRaising(this);
@@ -496,10 +1378,6 @@ public class NumberSpinEdit extends LinearLayout implements View.OnClickListener
 			}
 		}
 		
-		if (newValue > maxValue) {
-			newValue = maxValue;
-		}
-		
 		boolean changed = false;
 		if (commit && newValue != value)
 		{
@@ -516,51 +1394,142 @@ public class NumberSpinEdit extends LinearLayout implements View.OnClickListener
 
 	public void setEms(int ems) {
 		this.ems = ems;
-		if (number_editText != null) {
+		if (lightweight) {
+			requestLayout();
+		} else if (number_editText != null) {
 			number_editText.setEms(ems);
 		}
 	}
 
 	public void setMaxValue(int maxValue) {
-		this.maxValue = maxValue;
-		if (value > maxValue) setValue(maxValue);
-		if (minValue > maxValue) minValue = maxValue;
-		updateButtonsEnabled();
+		PaddedNumberTable.reserve(maxValue);
+		beginUpdate();
+		try {
+			this.maxValue = maxValue;
+			if (value > maxValue) setValue(maxValue);
+			if (minValue > maxValue) minValue = maxValue;
+			updateButtonsEnabled();
+			precomputeValueLayouts();
+		} finally {
+			endUpdate();
+		}
 	}
 	
 	public void setMinValue(int minValue) {
-		this.minValue = minValue;
-		if (value < minValue) setValue(minValue);
-		if (maxValue < minValue) maxValue = minValue;
-		updateButtonsEnabled();
+		beginUpdate();
+		try {
+			this.minValue = minValue;
+			if (value < minValue) setValue(minValue);
+			if (maxValue < minValue) maxValue = minValue;
+			updateButtonsEnabled();
+			precomputeValueLayouts();
+		} finally {
+			endUpdate();
+		}
+	}
+
+	/**
+	 * Sets both bounds at once, clamping the value only once
+	 */
+	public void setRange(int minValue, int maxValue) {
+		// The years are formatted without allocating too
+		PaddedNumberTable.reserve(maxValue);
+		beginUpdate();
+		try {
+			if (minValue > maxValue) minValue = maxValue;
+			this.minValue = minValue;
+			this.maxValue = maxValue;
+			if (value < minValue) {
+				setValue(minValue);
+			} else if (value > maxValue) {
+				setValue(maxValue);
+			}
+			updateButtonsEnabled();
+			precomputeValueLayouts();
+		} finally {
+			endUpdate();
+		}
 	}
 
 	public void setOnValueChangeListener(OnValueChangeListener valueChangeListener) {
 		this.valueChangeListener = valueChangeListener;
 	}
+	
+	public ValueSkipper getValueSkipper() {
+		return valueSkipper;
+	}
+	
+	/**
+	 * @param valueSkipper makes the buttons and the wheel jump over the values which 
+	 * aren't allowed, <code>null</code> allows every value in the range
+	 */
+	public void setValueSkipper(ValueSkipper valueSkipper) {
+		this.valueSkipper = valueSkipper;
+	}
 
 	private void updateValue() {
-		if (number_editText != null) {
+		if (updateDepth > 0) {
+			valueDirty = true;
+			return;
+		}
+		valueDirty = false;
+		
+		if (number_editText != null && (!lightweight || isEditing())) {
+			long metricsToken = PickerMetrics.begin(PickerMetrics.SECTION_UPDATE_VALUE);
 			isSelfEditing = true;
-			number_editText.setText(valueConverter.format(value));
+			number_editText.setText(formatValue(valueConverter, value));
 			isSelfEditing = false;
 			number_editText.selectAll();
+			PickerMetrics.end(PickerMetrics.SECTION_UPDATE_VALUE, metricsToken);
+		}
+		if (lightweight) {
+			invalidate();
 		}
 	}
 	
 	public void setValue(int value) {
-		this.value = value;
-		updateValue();
-		updateButtonsEnabled();
+		beginUpdate();
+		try {
+			// The text typed so far is going to be overwritten
+			editPending = false;
+			this.value = value;
+			updateValue();
+			updateButtonsEnabled();
+		} finally {
+			endUpdate();
+		}
 	}
 
 	public void setValueConverter(ValueConverter valueConverter) {
 		this.valueConverter = valueConverter;
+		if (renderer != null) {
+			renderer.clearLayoutCache();
+		}
 		updateValue();
+		precomputeValueLayouts();
+	}
+	
+	/**
+	 * Lets the renderer measure the values of the range in the background, 
+	 * so that spinning doesn't lay the text out (the month names are the slowest ones)
+	 */
+	private void precomputeValueLayouts() {
+		if (renderer != null && valueConverter != null && !isInEditMode()) {
+			renderer.precomputeLayouts(minValue, maxValue, valueConverter);
+		}
 	}
 
 	protected void updateButtonsEnabled() {
-		if (!isInEditMode()) {
+		if (updateDepth > 0) {
+			buttonsEnabledDirty = true;
+			return;
+		}
+		buttonsEnabledDirty = false;
+		
+		if (lightweight) {
+			// The buttons are drawn with the value
+			invalidate();
+		} else if (!isInEditMode()) {
 			raise_button.setEnabled(value < maxValue);
 			lower_button.setEnabled(value > minValue);
 		}
@@ -0,0 +1,233 @@
+package com.bigfatbrowncat.datetimechoice;
+
+import java.util.LinkedList;
+import java.util.ListIterator;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Build;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.View;
+
+/**
+ * Process-wide pool of ready-made {@link NumberSpinEdit} views.
+ * 
+ * After {@link #install(Context)} every {@link DateTimeChoice} takes its fields from the pool 
+ * instead of inflating them and gives them back in {@link DateTimeChoice#release()}. 
+ * The pool can be filled in advance on a background thread with {@link #prewarm(int, boolean)}.
+ * 
+ * The pooled views are built in the application context, so they get the application theme. 
+ * Don't install the pool if the pickers are shown in activities with another theme.
+ * Except {@link #prewarm(int, boolean)}, the pool should be used from the UI thread.
+ */
+public final class NumberSpinEditPool {
+	public static final int DEFAULT_CAPACITY = 32;
+	
+	private static NumberSpinEditPool instance;
+	
+	private final Context context;
+	private int capacity = DEFAULT_CAPACITY;
+	
+	// The idle views, the least recently released first
+	private final LinkedList<NumberSpinEdit> views = new LinkedList<NumberSpinEdit>();
+	
+	/**
+	 * Gives the pooled views to the inflater instead of creating new ones
+	 */
+	private class PooledViewFactory implements LayoutInflater.Factory {
+		private final boolean lightweight;
+		
+		PooledViewFactory(boolean lightweight) {
+			this.lightweight = lightweight;
+		}
+		
+		@Override
+		public View onCreateView(String name, Context context, AttributeSet attrs) {
+			if (!NumberSpinEdit.class.getName().equals(name)) {
+				return null;
+			}
+			
+			NumberSpinEdit view = acquire(lightweight);
+			if (view != null) {
+				view.applyAttributes(context, attrs);
+			}
+			// If the pool is empty, the inflater creates the view itself
+			return view;
+		}
+	}
+	
+	/**
+	 * Trims the pool when the system is short of memory (Ice Cream Sandwich and newer)
+	 */
+	private static class TrimMemoryCallbacks implements ComponentCallbacks2 {
+		private final NumberSpinEditPool pool;
+		
+		TrimMemoryCallbacks(NumberSpinEditPool pool) {
+			this.pool = pool;
+		}
+		
+		@Override
+		public void onTrimMemory(int level) {
+			pool.trimMemory(level);
+		}
+		
+		@Override
+		public void onLowMemory() {
+			pool.clear();
+		}
+		
+		@Override
+		public void onConfigurationChanged(Configuration newConfig) {
+			// The pooled views are configured when they are taken
+		}
+	}
+	
+	private NumberSpinEditPool(Context context) {
+		this.context = context;
+	}
+	
+	/**
+	 * Creates the process-wide pool if it hasn't been created yet
+	 */
+	public static synchronized NumberSpinEditPool install(Context context) {
+		if (instance == null) {
+			Context applicationContext = context.getApplicationContext();
+			instance = new NumberSpinEditPool(applicationContext);
+			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+				applicationContext.registerComponentCallbacks(new TrimMemoryCallbacks(instance));
+			}
+		}
+		return instance;
+	}
+	
+	/**
+	 * @return the pool or <code>null</code> if it hasn't been installed
+	 */
+	public static synchronized NumberSpinEditPool getInstance() {
+		return instance;
+	}
+	
+	public synchronized int getCapacity() {
+		return capacity;
+	}
+	
+	/**
+	 * Sets the highest number of idle views. The extra ones are dropped, 
+	 * the least recently released first.
+	 */
+	public synchronized void setCapacity(int capacity) {
+		this.capacity = capacity;
+		trimTo(capacity);
+	}
+	
+	public synchronized int size() {
+		return views.size();
+	}
+	
+	/**
+	 * @return an idle view of the given mode (if there is no such one, a view of the other mode 
+	 * is switched) or <code>null</code> if the pool is empty
+	 */
+	public synchronized NumberSpinEdit acquire(boolean lightweight) {
+		// The most recently released views come first
+		ListIterator<NumberSpinEdit> iterator = views.listIterator(views.size());
+		while (iterator.hasPrevious()) {
+			NumberSpinEdit view = iterator.previous();
+			if (view.isLightweight() == lightweight) {
+				iterator.remove();
+				return view;
+			}
+		}
+		
+		if (views.isEmpty()) {
+			return null;
+		}
+		NumberSpinEdit view = views.removeLast();
+		view.setLightweight(lightweight);
+		return view;
+	}
+	
+	/**
+	 * Puts the view back into the pool. The view should be removed from its parent before.
+	 * The views built in another context (i.e. inflated in an activity while the pool was empty)
+	 * are dropped, so that the pool doesn't keep the activity and doesn't give its theme to other ones.
+	 */
+	public synchronized void release(NumberSpinEdit view) {
+		if (view.getParent() != null) {
+			throw new IllegalArgumentException("The view should be removed from its parent before it's released");
+		}
+		if (capacity == 0 || view.getContext() != context) {
+			return;
+		}
+		
+		view.resetForPool();
+		trimTo(capacity - 1);
+		views.addLast(view);
+	}
+	
+	/**
+	 * Builds the views on a background thread until the pool holds <code>count</code> ones 
+	 * (but not more than the capacity)
+	 */
+	public void prewarm(final int count, final boolean lightweight) {
+		Thread thread = new Thread(new Runnable() {
+			
+			@Override
+			public void run() {
+				while (true) {
+					synchronized (NumberSpinEditPool.this) {
+						if (views.size() >= Math.min(count, capacity)) {
+							return;
+						}
+					}
+					
+					NumberSpinEdit view = new NumberSpinEdit(context, lightweight);
+					synchronized (NumberSpinEditPool.this) {
+						views.addLast(view);
+					}
+				}
+			}
+		}, "NumberSpinEditPool");
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+	}
+	
+	/**
+	 * Drops all the idle views
+	 */
+	public synchronized void clear() {
+		views.clear();
+	}
+	
+	/**
+	 * Drops some of the idle views, the least recently released first. It's called by itself 
+	 * on Ice Cream Sandwich and newer, the older systems may call it from 
+	 * <code>Application.onLowMemory()</code>.
+	 * @param level the <code>ComponentCallbacks2.TRIM_MEMORY_*</code> level
+	 */
+	public synchronized void trimMemory(int level) {
+		if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+			views.clear();
+		} else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+			trimTo(views.size() / 2);
+		}
+	}
+	
+	private void trimTo(int size) {
+		while (views.size() > Math.max(size, 0)) {
+			views.removeFirst();
+		}
+	}
+	
+	/**
+	 * @return the inflater which takes the {@link NumberSpinEdit} views from the pool
+	 */
+	LayoutInflater createInflater(Context context, boolean lightweight) {
+		LayoutInflater layoutInflater = (LayoutInflater)context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+		LayoutInflater pooledInflater = layoutInflater.cloneInContext(context);
+		pooledInflater.setFactory(new PooledViewFactory(lightweight));
+		return pooledInflater;
+	}
+}
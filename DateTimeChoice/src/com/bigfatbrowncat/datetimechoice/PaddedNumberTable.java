@@ -0,0 +1,91 @@
+package com.bigfatbrowncat.datetimechoice;
+
+/**
+ * Precomputed two-digit zero padded strings ("00", "01", ... "99") 
+ * and three-digit ones for the milliseconds ("000", "001", ... "999").
+ * 
+ * Formatting a value from the table doesn't allocate anything, 
+ * that matters when a field is being spun continuously.
+ * The larger values (i.e. the years) are cached up to the highest value 
+ * {@link #reserve(int)} has been called with, each of them is created once.
+ */
+final class PaddedNumberTable {
+	private static final int SIZE = 100;
+	private static final String[] TABLE = new String[SIZE];
+	
+	// The larger values aren't cached beyond the four-digit ones
+	private static final int WIDE_LIMIT = 10000;
+	// Filled on the first use of each value, replaced with a larger copy when it grows
+	private static volatile String[] wideTable = TABLE;
+	
+	static {
+		for (int i = 0; i < SIZE; i++) {
+			TABLE[i] = i < 10 ? "0" + i : String.valueOf(i);
+		}
+	}
+	
+	/**
+	 * The three-digit strings, created on the first use: 
+	 * only the views showing the milliseconds need them
+	 */
+	private static final class ThreeDigits {
+		static final int SIZE = 1000;
+		static final String[] TABLE = new String[SIZE];
+		
+		static {
+			for (int i = 0; i < SIZE; i++) {
+				TABLE[i] = i < 10 ? "00" + i : (i < 100 ? "0" + i : String.valueOf(i));
+			}
+		}
+	}
+	
+	private PaddedNumberTable() {
+	}
+	
+	/**
+	 * Makes the values up to <code>maxValue</code> cached (but not beyond 9999). 
+	 * It's called when the range of a field is set.
+	 */
+	static synchronized void reserve(int maxValue) {
+		String[] table = wideTable;
+		if (maxValue < table.length || table.length == WIDE_LIMIT) {
+			return;
+		}
+		String[] newTable = new String[Math.min(maxValue + 1, WIDE_LIMIT)];
+		System.arraycopy(table, 0, newTable, 0, table.length);
+		wideTable = newTable;
+	}
+	
+	/**
+	 * Formats the value padding it with zero up to 2 digits.
+	 * Values outside the 0..99 range are formatted as is.
+	 */
+	static String format(int value) {
+		if (value >= 0 && value < SIZE) {
+			return TABLE[value];
+		}
+		
+		String[] table = wideTable;
+		if (value < 0 || value >= table.length) {
+			return String.valueOf(value);
+		}
+		// The strings are immutable, so a value created twice by two threads is harmless
+		String text = table[value];
+		if (text == null) {
+			text = String.valueOf(value);
+			table[value] = text;
+		}
+		return text;
+	}
+	
+	/**
+	 * Formats the value padding it with zero up to 3 digits.
+	 * Values outside the 0..999 range are formatted as is.
+	 */
+	static String formatThreeDigits(int value) {
+		if (value >= 0 && value < ThreeDigits.SIZE) {
+			return ThreeDigits.TABLE[value];
+		}
+		return String.valueOf(value);
+	}
+}
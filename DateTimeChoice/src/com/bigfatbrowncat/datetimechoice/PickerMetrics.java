@@ -0,0 +1,125 @@
+package com.bigfatbrowncat.datetimechoice;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Optional instrumentation of the picker hot paths.
+ * 
+ * The sections are measured only if a {@link Sink} is set or tracing is enabled. 
+ * Otherwise each hot path call costs a couple of static field reads.
+ * Configure it from the UI thread, the settings aren't synchronized.
+ */
+public final class PickerMetrics {
+	/** {@link DateTimeChoice} bounds recalculation */
+	public static final int SECTION_CHECK_TIME_BOUNDS = 0;
+	/** Parsing and committing the text typed into a {@link NumberSpinEdit} */
+	public static final int SECTION_CHANGE_VALUE = 1;
+	/** Writing the value into the {@link NumberSpinEdit} edit box */
+	public static final int SECTION_UPDATE_VALUE = 2;
+	/** {@link NumberSpinEdit.ValueConverter#format(int)} */
+	public static final int SECTION_FORMAT = 3;
+	/** {@link NumberSpinEdit.ValueConverter#parse(String)} */
+	public static final int SECTION_PARSE = 4;
+	/** A tick of the held button auto-repeat */
+	public static final int SECTION_AUTO_REPEAT_TICK = 5;
+	
+	public static final int SECTIONS_COUNT = 6;
+	
+	private static final String[] SECTION_NAMES = {
+		"DateTimeChoice.checkTimeBounds",
+		"NumberSpinEdit.changeValue",
+		"NumberSpinEdit.updateValue",
+		"ValueConverter.format",
+		"ValueConverter.parse",
+		"NumberSpinEdit.autoRepeatTick"
+	};
+	
+	public interface Sink {
+		/**
+		 * Occurs on the thread which has executed the section, right after it
+		 * @param section one of the <code>SECTION_*</code> constants
+		 */
+		public void onSection(int section, long durationNanos);
+	}
+	
+	private static Sink sink;
+	private static boolean traceEnabled;
+	private static boolean enabled;
+	
+	private PickerMetrics() {
+	}
+	
+	public static String getSectionName(int section) {
+		return SECTION_NAMES[section];
+	}
+	
+	public static Sink getSink() {
+		return sink;
+	}
+	
+	/**
+	 * @param sink receives the sections durations, <code>null</code> turns the measuring off
+	 */
+	public static void setSink(Sink sink) {
+		PickerMetrics.sink = sink;
+		enabled = sink != null || traceEnabled;
+	}
+	
+	public static boolean isTraceEnabled() {
+		return traceEnabled;
+	}
+	
+	/**
+	 * Turns the <code>android.os.Trace</code> sections (shown by systrace and Perfetto) 
+	 * on or off. Works on Jelly Bean MR2 and newer.
+	 */
+	public static void setTraceEnabled(boolean traceEnabled) {
+		PickerMetrics.traceEnabled = traceEnabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+		enabled = sink != null || PickerMetrics.traceEnabled;
+	}
+	
+	/**
+	 * Starts the section
+	 * @return the token to pass to {@link #end(int, long)}
+	 */
+	static long begin(int section) {
+		if (!enabled) {
+			return 0;
+		}
+		
+		if (traceEnabled) {
+			TraceSections.begin(SECTION_NAMES[section]);
+		}
+		return System.nanoTime();
+	}
+	
+	static void end(int section, long token) {
+		if (token == 0) {
+			return;
+		}
+		
+		long duration = System.nanoTime() - token;
+		if (traceEnabled) {
+			TraceSections.end();
+		}
+		
+		Sink sink = PickerMetrics.sink;
+		if (sink != null) {
+			sink.onSection(section, duration);
+		}
+	}
+	
+	/**
+	 * Keeps the references to <code>android.os.Trace</code> away from the older platforms
+	 */
+	private static class TraceSections {
+		static void begin(String name) {
+			Trace.beginSection(name);
+		}
+		
+		static void end() {
+			Trace.endSection();
+		}
+	}
+}
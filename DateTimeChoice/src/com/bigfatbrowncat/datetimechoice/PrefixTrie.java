@@ -0,0 +1,115 @@
+package com.bigfatbrowncat.datetimechoice;
+
+/**
+ * Case-insensitive prefix tree mapping strings to int values.
+ * 
+ * Looking up a prefix returns the value of the first added string 
+ * which starts with it. The lookup walks the text char by char 
+ * and doesn't allocate anything. {@link #findUnambiguous(CharSequence, int, int, int)} 
+ * is the stricter lookup for the typed text: it takes a whole string 
+ * or a prefix which all the strings starting with it agree on.
+ */
+final class PrefixTrie {
+	static final int NOT_FOUND = -1;
+	
+	private static class Node {
+		private char[] keys = new char[0];
+		private Node[] children = new Node[0];
+		private int value = NOT_FOUND;
+		// The value of the string ending here
+		private int exactValue = NOT_FOUND;
+		// Whether the strings starting with the prefix have different values
+		private boolean ambiguous;
+		
+		Node child(char key) {
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] == key) return children[i];
+			}
+			return null;
+		}
+		
+		Node addChild(char key) {
+			int count = keys.length;
+			
+			char[] newKeys = new char[count + 1];
+			System.arraycopy(keys, 0, newKeys, 0, count);
+			newKeys[count] = key;
+			
+			Node[] newChildren = new Node[count + 1];
+			System.arraycopy(children, 0, newChildren, 0, count);
+			newChildren[count] = new Node();
+			
+			keys = newKeys;
+			children = newChildren;
+			return newChildren[count];
+		}
+	}
+	
+	private final Node root = new Node();
+	
+	/**
+	 * Adds the string. The prefixes which already belong to 
+	 * a string added earlier keep their values.
+	 * @param value non-negative value
+	 */
+	void put(String str, int value) {
+		Node node = root;
+		for (int i = 0; i < str.length(); i++) {
+			char key = Character.toLowerCase(str.charAt(i));
+			Node next = node.child(key);
+			if (next == null) {
+				next = node.addChild(key);
+			}
+			if (next.value == NOT_FOUND) {
+				next.value = value;
+			} else if (next.value != value) {
+				next.ambiguous = true;
+			}
+			node = next;
+		}
+		if (node != root && node.exactValue == NOT_FOUND) {
+			node.exactValue = value;
+		}
+	}
+	
+	/**
+	 * @return the value of the first string starting with <code>prefix</code> 
+	 * or {@link #NOT_FOUND} if there is no such string or the prefix is empty
+	 */
+	int find(CharSequence prefix) {
+		return find(prefix, 0, prefix.length());
+	}
+	
+	int find(CharSequence text, int start, int end) {
+		Node node = root;
+		for (int i = start; i < end; i++) {
+			node = node.child(Character.toLowerCase(text.charAt(i)));
+			if (node == null) {
+				return NOT_FOUND;
+			}
+		}
+		return node.value;
+	}
+	
+	/**
+	 * @return the value of the string equal to the text, or else the value of the strings 
+	 * starting with it if they all have the same one and the text is at least 
+	 * <code>minLength</code> chars long, or else {@link #NOT_FOUND}
+	 */
+	int findUnambiguous(CharSequence text, int start, int end, int minLength) {
+		Node node = root;
+		for (int i = start; i < end; i++) {
+			node = node.child(Character.toLowerCase(text.charAt(i)));
+			if (node == null) {
+				return NOT_FOUND;
+			}
+		}
+		if (node.exactValue != NOT_FOUND) {
+			return node.exactValue;
+		}
+		if (end - start < minLength || node.ambiguous) {
+			return NOT_FOUND;
+		}
+		return node.value;
+	}
+}
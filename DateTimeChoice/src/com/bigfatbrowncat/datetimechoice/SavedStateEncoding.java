@@ -0,0 +1,42 @@
+package com.bigfatbrowncat.datetimechoice;
+
+/**
+ * The saved state of {@link DateTimeChoice}: its model written as one <code>long</code> array,
+ * the version first, then the value and the bounds.
+ * 
+ * The parcel keeps the length of the array, so the whole state is always read back
+ * even if its version is unknown, and the states saved after it stay in place.
+ */
+final class SavedStateEncoding {
+	// Increased when the layout of the array changes, the states of other versions are dropped
+	static final int VERSION = 1;
+	
+	private static final int VERSION_INDEX = 0;
+	private static final int VALUE_INDEX = 1;
+	private static final int MIN_VALUE_INDEX = 2;
+	private static final int MAX_VALUE_INDEX = 3;
+	private static final int LENGTH = 4;
+	
+	private SavedStateEncoding() {
+	}
+	
+	static long[] encode(DateTimeChoiceModel model) {
+		long[] state = new long[LENGTH];
+		state[VERSION_INDEX] = VERSION;
+		state[VALUE_INDEX] = model.getValue();
+		state[MIN_VALUE_INDEX] = model.getMinValue();
+		state[MAX_VALUE_INDEX] = model.getMaxValue();
+		return state;
+	}
+	
+	/**
+	 * @return the model or <code>null</code> if the state is missing,
+	 * of another version or damaged
+	 */
+	static DateTimeChoiceModel decode(long[] state) {
+		if (state == null || state.length != LENGTH || state[VERSION_INDEX] != VERSION) {
+			return null;
+		}
+		return new DateTimeChoiceModel(state[VALUE_INDEX], state[MIN_VALUE_INDEX], state[MAX_VALUE_INDEX]);
+	}
+}
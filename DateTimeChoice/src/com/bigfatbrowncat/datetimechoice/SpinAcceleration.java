@@ -0,0 +1,85 @@
+package com.bigfatbrowncat.datetimechoice;
+
+/**
+ * Describes how the auto-repeat of a held {@link NumberSpinEdit} button speeds up.
+ * 
+ * The acceleration consists of stages. Each stage starts after the button has been held 
+ * for some time and defines the interval between the ticks and the step of each tick.
+ */
+public class SpinAcceleration {
+	private long[] stageStarts = new long[0];
+	private long[] intervals = new long[0];
+	private int[] steps = new int[0];
+	
+	/**
+	 * Creates the acceleration which starts with the given interval and step
+	 */
+	public SpinAcceleration(long intervalMillis, int step) {
+		addStage(0, intervalMillis, step);
+	}
+	
+	/**
+	 * The acceleration used by default: 1 step per 100 msec, speeding up to 
+	 * 1 step per 50 msec after a second, then to steps of 5 and 10 values
+	 */
+	public static SpinAcceleration createDefault() {
+		return new SpinAcceleration(100, 1)
+		       .addStage(1000, 50, 1)
+		       .addStage(2500, 100, 5)
+		       .addStage(4000, 100, 10);
+	}
+	
+	/**
+	 * Adds a stage. The stages should be added in the order of their start time.
+	 * @param startMillis how long the button should be held for the stage to start
+	 * @param intervalMillis the interval between two ticks
+	 * @param step the value change per tick
+	 * @return this acceleration
+	 */
+	public SpinAcceleration addStage(long startMillis, long intervalMillis, int step) {
+		int count = stageStarts.length;
+		if (count > 0 && startMillis <= stageStarts[count - 1]) {
+			throw new IllegalArgumentException("The stages should be added in the order of their start time");
+		}
+		if (intervalMillis <= 0 || step <= 0) {
+			throw new IllegalArgumentException("The interval and the step should be positive");
+		}
+		
+		long[] newStageStarts = new long[count + 1];
+		long[] newIntervals = new long[count + 1];
+		int[] newSteps = new int[count + 1];
+		System.arraycopy(stageStarts, 0, newStageStarts, 0, count);
+		System.arraycopy(intervals, 0, newIntervals, 0, count);
+		System.arraycopy(steps, 0, newSteps, 0, count);
+		newStageStarts[count] = startMillis;
+		newIntervals[count] = intervalMillis;
+		newSteps[count] = step;
+		
+		stageStarts = newStageStarts;
+		intervals = newIntervals;
+		steps = newSteps;
+		return this;
+	}
+	
+	private int getStage(long heldMillis) {
+		int stage = 0;
+		while (stage + 1 < stageStarts.length && stageStarts[stage + 1] <= heldMillis) {
+			stage++;
+		}
+		return stage;
+	}
+	
+	/**
+	 * @return the interval between ticks after the button has been held for <code>heldMillis</code>
+	 */
+	public long getInterval(long heldMillis) {
+		return intervals[getStage(heldMillis)];
+	}
+	
+	/**
+	 * @return the value change per tick after the button has been held for <code>heldMillis</code>
+	 */
+	public int getStep(long heldMillis) {
+		return steps[getStage(heldMillis)];
+	}
+}
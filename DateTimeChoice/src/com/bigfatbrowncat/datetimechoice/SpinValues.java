@@ -0,0 +1,154 @@
+package com.bigfatbrowncat.datetimechoice;
+
+/**
+ * The value arithmetic of {@link NumberSpinEdit}. 
+ * 
+ * Doesn't depend on Android, so it can be run (and measured) on a plain JVM.
+ */
+final class SpinValues {
+	private static final int[] POWERS_OF_TEN = {
+		1, 10, 100, 1000, 10000, 100000, 1000000, 10000000, 100000000, 1000000000
+	};
+	
+	private SpinValues() {
+	}
+	
+	/**
+	 * @return the number of decimal digits of the value (1 for zero and negative values)
+	 */
+	static int countDigits(int value) {
+		int digits = 1;
+		while (digits < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[digits]) {
+			digits++;
+		}
+		return digits;
+	}
+	
+	/**
+	 * @return the highest value which fits into <code>ems</code> digits
+	 */
+	static int getHighestValue(int ems) {
+		if (ems >= POWERS_OF_TEN.length) {
+			return Integer.MAX_VALUE;
+		}
+		return POWERS_OF_TEN[ems] - 1;
+	}
+	
+	/**
+	 * Parses the decimal number in the range of the text without making a string of it.
+	 * The numbers which don't fit into an int are saturated.
+	 * @return the number or <code>fallback</code> if the range isn't a number
+	 */
+	static int parse(CharSequence text, int start, int end, int fallback) {
+		boolean negative = false;
+		if (start < end && text.charAt(start) == '-') {
+			negative = true;
+			start++;
+		}
+		if (start >= end) {
+			return fallback;
+		}
+		
+		long number = 0;
+		for (int i = start; i < end; i++) {
+			char c = text.charAt(i);
+			if (c < '0' || c > '9') {
+				return fallback;
+			}
+			if (number <= Integer.MAX_VALUE) {
+				number = number * 10 + (c - '0');
+			}
+		}
+		
+		if (negative) {
+			number = -number;
+		}
+		return (int)Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, number));
+	}
+	
+	static int clamp(int value, int minValue, int maxValue) {
+		if (value > maxValue) {
+			value = maxValue;
+		}
+		if (value < minValue) {
+			value = minValue;
+		}
+		return value;
+	}
+	
+	private static long floorToStep(long value, int step) {
+		long q = value / step;
+		if (value % step != 0 && value < 0) q--;
+		return q * step;
+	}
+	
+	private static long ceilToStep(long value, int step) {
+		return -floorToStep(-value, step);
+	}
+	
+	/**
+	 * Moves the value by <code>steps</code> steps of <code>step</code> (negative ones move it down).
+	 * If the steps are aligned, the value stays on the multiples of <code>step</code>: 
+	 * the first step from a value between them goes to the nearest one in the direction, 
+	 * and the range edges are the outermost multiples within it (if there are any).
+	 * @return the new value clamped into the range
+	 */
+	static int stepBy(int value, int steps, int step, boolean aligned, int minValue, int maxValue) {
+		long target;
+		if (aligned && step > 1) {
+			long base = steps >= 0 ? floorToStep(value, step) : ceilToStep(value, step);
+			target = base + (long)steps * step;
+			
+			long lowestAligned = ceilToStep(minValue, step);
+			long highestAligned = floorToStep(maxValue, step);
+			if (lowestAligned <= highestAligned) {
+				target = Math.max(lowestAligned, Math.min(highestAligned, target));
+			}
+		} else {
+			target = value + (long)steps * step;
+		}
+		return (int)Math.max(minValue, Math.min(maxValue, target));
+	}
+	
+	/**
+	 * @return how many steps (see {@link #stepBy}) it takes to get from the value 
+	 * to the edge of the range in the direction
+	 */
+	static int countSteps(int value, int step, boolean aligned, int minValue, int maxValue, boolean raising) {
+		if (aligned && step > 1) {
+			long lowestAligned = ceilToStep(minValue, step);
+			long highestAligned = floorToStep(maxValue, step);
+			if (lowestAligned <= highestAligned) {
+				if (raising) {
+					return value >= highestAligned ? 0 : (int)((highestAligned - floorToStep(value, step)) / step);
+				} else {
+					return value <= lowestAligned ? 0 : (int)((ceilToStep(value, step) - lowestAligned) / step);
+				}
+			}
+		}
+		
+		long distance = raising ? (long)maxValue - value : (long)value - minValue;
+		return (int)((Math.max(distance, 0) + step - 1) / step);
+	}
+	
+	/**
+	 * @return the multiple of <code>step</code> within the range nearest to the value 
+	 * (the value itself if there is no such multiple)
+	 */
+	static int snap(int value, int step, int minValue, int maxValue) {
+		if (step <= 1) {
+			return value;
+		}
+		
+		long lower = floorToStep(value, step);
+		long higher = lower + step;
+		long snapped = value - lower < higher - value ? lower : higher;
+		if (snapped > maxValue) {
+			snapped = floorToStep(maxValue, step);
+		}
+		if (snapped < minValue) {
+			snapped = ceilToStep(minValue, step);
+		}
+		return snapped >= minValue && snapped <= maxValue ? (int)snapped : value;
+	}
+}
@@ -0,0 +1,231 @@
+package com.bigfatbrowncat.datetimechoice;
+
+import java.util.TimeZone;
+
+/**
+ * The UTC offset transitions of a {@link TimeZone} precomputed per year.
+ *
+ * A year is scanned once, when it's needed for the first time: by 6 days, and the transitions
+ * found are pinned down by bisection. After that the offset of any moment of the year 
+ * is a lookup in a couple of array elements (a year has a few transitions at most). 
+ * Each year has its own slot in the cache (the years the view shows by default 
+ * never replace each other), and a rescanned slot reuses its arrays, 
+ * so spinning through the years doesn't allocate.
+ *
+ * {@link ArithmeticCalendarBackend} and {@link DaylightGapConstraint} of a view 
+ * share one table. The table isn't thread safe.
+ */
+final class ZoneTransitionTable {
+	private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
+	// A power of two larger than the years from 1970 to 2100, the slot of a year is its lowest bits
+	private static final int CACHE_SIZE = 256;
+
+	// Shorter than any period of another offset: the shortest daylight saving time 
+	// since 1970 has lasted a week (parts of Brazil in October 2000)
+	private static final long SCAN_STEP = 6 * MILLIS_PER_DAY;
+	
+	// Two transitions a year, the arrays grow for the rare years which have more
+	private static final int INITIAL_TRANSITIONS = 4;
+
+	private final TimeZone timeZone;
+
+	private final int[] cachedYears = new int[CACHE_SIZE];
+	// The first moments of the years and of the years after them
+	private final long[] cachedStarts = new long[CACHE_SIZE];
+	private final long[] cachedEnds = new long[CACHE_SIZE];
+	// The moments of the transitions within the year, created on the first use of the slot
+	private final long[][] cachedTransitions = new long[CACHE_SIZE][];
+	// The offset before the first transition and the offsets after each one
+	private final int[][] cachedOffsets = new int[CACHE_SIZE][];
+	private final int[] cachedCounts = new int[CACHE_SIZE];
+	private int lastSlot;
+
+	// The last gap found by findGap()
+	private long gapStart;
+	private long gapEnd;
+
+	ZoneTransitionTable(TimeZone timeZone) {
+		this.timeZone = timeZone;
+		for (int i = 0; i < CACHE_SIZE; i++) {
+			cachedYears[i] = Integer.MIN_VALUE;
+		}
+	}
+
+	TimeZone getTimeZone() {
+		return timeZone;
+	}
+
+	/**
+	 * @return the UTC year of the moment
+	 */
+	static int getYear(long millis) {
+		long epochDay = ArithmeticCalendarBackend.floorDiv(millis, MILLIS_PER_DAY);
+		// There are 146097 days in 400 years, so the estimate is off by a year at most
+		int year = (int)(1970 + ArithmeticCalendarBackend.floorDiv(epochDay * 400, 146097));
+		if (ArithmeticCalendarBackend.toEpochDay(year, 1, 1) > epochDay) {
+			year--;
+		} else if (ArithmeticCalendarBackend.toEpochDay(year + 1, 1, 1) <= epochDay) {
+			year++;
+		}
+		return year;
+	}
+
+	/**
+	 * @return the cache slot holding the transitions of the year
+	 */
+	private int getSlot(int year) {
+		int slot = year & (CACHE_SIZE - 1);
+		if (cachedYears[slot] != year) {
+			scanYear(year, slot);
+		}
+		lastSlot = slot;
+		return slot;
+	}
+
+	private void scanYear(int year, int slot) {
+		long start = ArithmeticCalendarBackend.toEpochDay(year, 1, 1) * MILLIS_PER_DAY;
+		long last = ArithmeticCalendarBackend.toEpochDay(year + 1, 1, 1) * MILLIS_PER_DAY - 1;
+
+		long[] transitions = cachedTransitions[slot];
+		int[] offsets = cachedOffsets[slot];
+		if (transitions == null) {
+			transitions = new long[INITIAL_TRANSITIONS];
+			offsets = new int[INITIAL_TRANSITIONS + 1];
+		}
+		int count = 0;
+
+		int offset = timeZone.getOffset(start);
+		offsets[0] = offset;
+		long from = start;
+		while (from < last) {
+			long to = Math.min(from + SCAN_STEP, last);
+			if (timeZone.getOffset(to) == offset) {
+				from = to;
+				continue;
+			}
+
+			// Looking for the first moment with another offset
+			long low = from;
+			long high = to;
+			while (high - low > 1) {
+				long middle = low + (high - low) / 2;
+				if (timeZone.getOffset(middle) == offset) {
+					low = middle;
+				} else {
+					high = middle;
+				}
+			}
+
+			if (count == transitions.length) {
+				long[] newTransitions = new long[count * 2];
+				int[] newOffsets = new int[count * 2 + 1];
+				System.arraycopy(transitions, 0, newTransitions, 0, count);
+				System.arraycopy(offsets, 0, newOffsets, 0, count + 1);
+				transitions = newTransitions;
+				offsets = newOffsets;
+			}
+			offset = timeZone.getOffset(high);
+			transitions[count] = high;
+			offsets[count + 1] = offset;
+			count++;
+			from = high;
+		}
+
+		cachedStarts[slot] = start;
+		cachedEnds[slot] = last + 1;
+		cachedYears[slot] = year;
+		cachedTransitions[slot] = transitions;
+		cachedOffsets[slot] = offsets;
+		cachedCounts[slot] = count;
+	}
+
+	/**
+	 * The same as {@link TimeZone#getOffset(long)}
+	 */
+	int getOffset(long millis) {
+		int slot = lastSlot;
+		if (millis < cachedStarts[slot] || millis >= cachedEnds[slot] || cachedYears[slot] == Integer.MIN_VALUE) {
+			slot = getSlot(getYear(millis));
+		}
+		long[] transitions = cachedTransitions[slot];
+		int count = cachedCounts[slot];
+		int i = 0;
+		while (i < count && transitions[i] <= millis) {
+			i++;
+		}
+		return cachedOffsets[slot][i];
+	}
+
+	/**
+	 * Looks for the gap (the wall clock time skipped by a transition, i.e. 02:00 - 03:00
+	 * when the clocks are moved forward) containing the local time.
+	 * If it's found, it's available through {@link #getGapStart()} and {@link #getGapEnd()}.
+	 * @param localMillis the local time in milliseconds as if it was in UTC
+	 */
+	boolean findGap(long localMillis) {
+		// The transition is within a day from the local time whatever the offsets are
+		int firstYear;
+		int lastYear;
+		int slot = lastSlot;
+		if (cachedYears[slot] != Integer.MIN_VALUE && localMillis - MILLIS_PER_DAY >= cachedStarts[slot] 
+		        && localMillis + MILLIS_PER_DAY < cachedEnds[slot]) {
+			// Most of the lookups are within the year looked up last time
+			firstYear = cachedYears[slot];
+			lastYear = firstYear;
+		} else {
+			firstYear = getYear(localMillis - MILLIS_PER_DAY);
+			lastYear = getYear(localMillis + MILLIS_PER_DAY);
+		}
+		for (int year = firstYear; year <= lastYear; year++) {
+			slot = getSlot(year);
+			long[] transitions = cachedTransitions[slot];
+			int[] offsets = cachedOffsets[slot];
+			int count = cachedCounts[slot];
+			for (int i = 0; i < count; i++) {
+				long before = transitions[i] + offsets[i];
+				long after = transitions[i] + offsets[i + 1];
+				if (localMillis >= before && localMillis < after) {
+					gapStart = before;
+					gapEnd = after;
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return whether the clocks are moved forward at a moment between the given ones 
+	 * (including them), so that some wall clock times in between don't exist
+	 */
+	boolean hasGap(long fromMillis, long toMillis) {
+		int lastYear = getYear(toMillis);
+		for (int year = getYear(fromMillis); year <= lastYear; year++) {
+			int slot = getSlot(year);
+			long[] transitions = cachedTransitions[slot];
+			int[] offsets = cachedOffsets[slot];
+			int count = cachedCounts[slot];
+			for (int i = 0; i < count; i++) {
+				if (offsets[i + 1] > offsets[i] && transitions[i] >= fromMillis && transitions[i] <= toMillis) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the first skipped local time of the last found gap
+	 */
+	long getGapStart() {
+		return gapStart;
+	}
+
+	/**
+	 * @return the local time right after the last found gap
+	 */
+	long getGapEnd() {
+		return gapEnd;
+	}
+}
@@ -0,0 +1,77 @@
+package com.bigfatbrowncat.datetimechoice;
+
+import java.util.TimeZone;
+
+/**
+ * The headless part of {@link DateTimeChoice}: the fields, the bounds and the calendar.
+ * It does what the view does on a spin tick and on <code>setValueMillis()</code>, 
+ * without the views.
+ */
+final class BenchmarkPicker {
+	final CalendarBackend calendarBackend;
+	final DateTimeBounds bounds = new DateTimeBounds();
+	final int[] fields = new int[DateTimeBounds.FIELDS_COUNT];
+	// The user's constraint, without the daylight saving gaps
+	final DateTimeConstraint constraint;
+	
+	/**
+	 * @param constraintName "none" or "businessHours" (9:00 - 18:00 in 15-minute slots)
+	 */
+	BenchmarkPicker(String timeZoneId, String constraintName, long minValue, long maxValue) {
+		this(timeZoneId, "businessHours".equals(constraintName) ? 
+				new IntersectionConstraint(IntervalSetConstraint.daily(9 * 60, 18 * 60), IntervalSetConstraint.everyMinutes(15)) : null, 
+				minValue, maxValue);
+	}
+	
+	/**
+	 * @param constraint the user's constraint or <code>null</code>
+	 */
+	BenchmarkPicker(String timeZoneId, DateTimeConstraint constraint, long minValue, long maxValue) {
+		ArithmeticCalendarBackend arithmeticBackend = new ArithmeticCalendarBackend(TimeZone.getTimeZone(timeZoneId));
+		calendarBackend = arithmeticBackend;
+		
+		// The gaps share the backend's transition table and are excluded only if the range has any
+		this.constraint = constraint;
+		DaylightGapConstraint gapConstraint = null;
+		if (DaylightGapConstraint.isNeeded(arithmeticBackend.getTransitions(), minValue, maxValue)) {
+			gapConstraint = new DaylightGapConstraint(arithmeticBackend.getTransitions());
+		}
+		bounds.setConstraint(DaylightGapConstraint.intersect(constraint, gapConstraint));
+		
+		DateTimeClampEngine.toFields(calendarBackend, minValue, fields);
+		bounds.setLowest(fields);
+		DateTimeClampEngine.toFields(calendarBackend, maxValue, fields);
+		bounds.setHighest(fields);
+		
+		setValueMillis(minValue);
+	}
+	
+	/**
+	 * What a button tick does: the spin edit steps the field and skips the disallowed values, 
+	 * then the picker clamps all the fields keeping the changed one
+	 * @return the new value of the field
+	 */
+	int tick(int field, int steps) {
+		int value = SpinValues.stepBy(fields[field], steps, 1, false, bounds.getLower(field), bounds.getHigher(field));
+		fields[field] = bounds.skip(field, value, steps > 0);
+		checkTimeBounds(field);
+		return fields[field];
+	}
+	
+	void checkTimeBounds(int keptField) {
+		bounds.compute(fields, keptField);
+		int fieldsCount = bounds.getFieldsCount();
+		for (int i = 0; i < fieldsCount; i++) {
+			fields[i] = bounds.getValue(i);
+		}
+	}
+	
+	void setValueMillis(long value) {
+		DateTimeClampEngine.toFields(calendarBackend, value, fields);
+		checkTimeBounds(-1);
+	}
+	
+	long getValueMillis() {
+		return DateTimeClampEngine.toMillis(calendarBackend, fields, bounds.getFieldsCount());
+	}
+}
@@ -0,0 +1,27 @@
+package com.bigfatbrowncat.datetimechoice;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so that the allocated bytes per operation 
+ * (<code>gc.alloc.rate.norm</code>) are reported next to the time. The usual JMH options 
+ * are accepted, i.e. <code>java -jar target/benchmarks.jar TickBenchmark -p timeZone=UTC</code>.
+ */
+public final class Benchmarks {
+	private Benchmarks() {
+	}
+	
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+		Options options = new OptionsBuilder()
+		        .parent(new CommandLineOptions(args))
+		        .addProfiler(GCProfiler.class)
+		        .build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,82 @@
+package com.bigfatbrowncat.datetimechoice;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Random values set one after another (i.e. a list of pickers being rebound while scrolled) 
+ * and clamped in bulk by {@link DateTimeClampEngine}. One operation is one value.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SetValueStormBenchmark {
+	private static final int VALUES_COUNT = 4096;
+	
+	// 2013-01-01 00:00 UTC and 2014-12-31 23:59 UTC
+	private static final long MIN_VALUE = 1356998400000L;
+	private static final long MAX_VALUE = 1420070340000L;
+	
+	@Param({ "UTC", "America/New_York" })
+	public String timeZone;
+	
+	@Param({ "none", "businessHours" })
+	public String constraint;
+	
+	private BenchmarkPicker picker;
+	private DateTimeClampEngine engine;
+	private final long[] values = new long[VALUES_COUNT];
+	private final long[] clampedValues = new long[VALUES_COUNT];
+	
+	@Setup
+	public void setUp() {
+		picker = new BenchmarkPicker(timeZone, constraint, MIN_VALUE, MAX_VALUE);
+		
+		engine = new DateTimeClampEngine(picker.calendarBackend.getTimeZone());
+		engine.setMinValueMillis(MIN_VALUE);
+		engine.setMaxValueMillis(MAX_VALUE);
+		engine.setConstraint(picker.constraint);
+		engine.setParallel(false);
+		
+		// A bit wider than the bounds, so that some of the values are clamped
+		Random random = new Random(2013);
+		long margin = (MAX_VALUE - MIN_VALUE) / 10;
+		for (int i = 0; i < VALUES_COUNT; i++) {
+			values[i] = MIN_VALUE - margin + (long)(random.nextDouble() * (MAX_VALUE - MIN_VALUE + 2 * margin));
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(VALUES_COUNT)
+	public long setValue() {
+		long checksum = 0;
+		for (int i = 0; i < VALUES_COUNT; i++) {
+			picker.setValueMillis(values[i]);
+			checksum += picker.getValueMillis();
+		}
+		return checksum;
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(VALUES_COUNT)
+	public int engineClamp() {
+		System.arraycopy(values, 0, clampedValues, 0, VALUES_COUNT);
+		return engine.clamp(clampedValues);
+	}
+}
@@ -0,0 +1,72 @@
+package com.bigfatbrowncat.datetimechoice;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A held button: the field is swept from its lowest value to its highest one 
+ * with the default acceleration, each tick is checked and formatted. 
+ * One operation is the whole sweep.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SweepBenchmark {
+	// 1970-01-01 00:00 UTC and 2100-12-31 23:59 UTC, the view's default range
+	private static final long MIN_VALUE = 0L;
+	private static final long MAX_VALUE = 4133980740000L;
+	
+	@Param({ "YEAR", "MONTH", "DAY_OF_MONTH", "HOUR_OF_DAY", "MINUTE" })
+	public String field;
+	
+	@Param({ "UTC", "America/New_York" })
+	public String timeZone;
+	
+	@Param({ "none", "businessHours" })
+	public String constraint;
+	
+	private BenchmarkPicker picker;
+	private int fieldIndex;
+	private long startValue;
+	private final SpinAcceleration acceleration = SpinAcceleration.createDefault();
+	
+	@Setup
+	public void setUp() throws Exception {
+		fieldIndex = DateTimeBounds.class.getDeclaredField(field).getInt(null);
+		picker = new BenchmarkPicker(timeZone, constraint, MIN_VALUE, MAX_VALUE);
+		// 2013-08-15 12:00 UTC, in the middle of the business hours
+		picker.setValueMillis(1376568000000L);
+		picker.fields[fieldIndex] = picker.bounds.getLower(fieldIndex);
+		picker.checkTimeBounds(fieldIndex);
+		startValue = picker.getValueMillis();
+	}
+	
+	@Benchmark
+	public int sweep() {
+		picker.setValueMillis(startValue);
+		
+		int checksum = 0;
+		long heldMillis = 0;
+		int value = picker.fields[fieldIndex];
+		while (value < picker.bounds.getHigher(fieldIndex)) {
+			value = picker.tick(fieldIndex, acceleration.getStep(heldMillis));
+			checksum += PaddedNumberTable.format(value).length();
+			heldMillis += acceleration.getInterval(heldMillis);
+		}
+		return checksum;
+	}
+}
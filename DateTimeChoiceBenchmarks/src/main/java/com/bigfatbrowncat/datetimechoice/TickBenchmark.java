@@ -0,0 +1,101 @@
+package com.bigfatbrowncat.datetimechoice;
+
+import java.text.DateFormatSymbols;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A single spin tick and its parts: the bounds check, reading the value, 
+ * formatting and parsing the field text
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TickBenchmark {
+	// 2013-01-01 00:00 UTC and 2014-12-31 23:59 UTC
+	private static final long MIN_VALUE = 1356998400000L;
+	private static final long MAX_VALUE = 1420070340000L;
+	
+	@Param({ "UTC", "America/New_York" })
+	public String timeZone;
+	
+	@Param({ "none", "businessHours" })
+	public String constraint;
+	
+	private BenchmarkPicker picker;
+	private int direction = 1;
+	
+	private final PrefixTrie monthNames = new PrefixTrie();
+	private String[] monthTexts;
+	private final String[] numberTexts = new String[60];
+	private int counter;
+	
+	@Setup
+	public void setUp() {
+		picker = new BenchmarkPicker(timeZone, constraint, MIN_VALUE, MAX_VALUE);
+		picker.setValueMillis(MIN_VALUE + (MAX_VALUE - MIN_VALUE) / 2);
+		
+		monthTexts = new DateFormatSymbols(Locale.US).getShortMonths();
+		for (int i = 0; i < 12; i++) {
+			monthNames.put(monthTexts[i], i + 1);
+		}
+		for (int i = 0; i < numberTexts.length; i++) {
+			numberTexts[i] = PaddedNumberTable.format(i);
+		}
+	}
+	
+	/**
+	 * Raises the minute until its highest value, then lowers it back
+	 */
+	@Benchmark
+	public int minuteTick() {
+		int minute = picker.fields[DateTimeBounds.MINUTE];
+		if (minute == picker.bounds.getHigher(DateTimeBounds.MINUTE)) {
+			direction = -1;
+		} else if (minute == picker.bounds.getLower(DateTimeBounds.MINUTE)) {
+			direction = 1;
+		}
+		return picker.tick(DateTimeBounds.MINUTE, direction);
+	}
+	
+	@Benchmark
+	public void checkTimeBounds() {
+		picker.checkTimeBounds(-1);
+	}
+	
+	@Benchmark
+	public long getValue() {
+		return picker.getValueMillis();
+	}
+	
+	@Benchmark
+	public String formatValue() {
+		return PaddedNumberTable.format(counter++ % 60);
+	}
+	
+	@Benchmark
+	public int parseValue() {
+		String text = numberTexts[counter++ % 60];
+		return SpinValues.parse(text, 0, text.length(), -1);
+	}
+	
+	@Benchmark
+	public int parseMonth() {
+		return monthNames.find(monthTexts[counter++ % 12]);
+	}
+}
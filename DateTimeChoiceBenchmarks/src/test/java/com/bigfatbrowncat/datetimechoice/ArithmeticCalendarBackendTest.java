@@ -0,0 +1,143 @@
+package com.bigfatbrowncat.datetimechoice;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+/**
+ * Checks {@link ArithmeticCalendarBackend} against <code>java.util.GregorianCalendar</code>
+ * (through {@link GregorianCalendarBackend}) over the whole range of the view, 1970 - 2100
+ */
+public class ArithmeticCalendarBackendTest {
+	private static final long MILLIS_PER_MINUTE = 60 * 1000L;
+	private static final long STEP_MINUTES = 30;
+	
+	private static final long FIRST_MINUTES = ArithmeticCalendarBackend.toLocalMinutes(DateTimeBounds.DEFAULT_LOWEST_YEAR, 1, 1, 0, 0);
+	private static final long LAST_MINUTES = ArithmeticCalendarBackend.toLocalMinutes(DateTimeBounds.DEFAULT_HIGHEST_YEAR, 12, 31, 23, 59);
+	
+	// The fixed offsets, the usual daylight saving time, the half-hour ones, the midnight gaps, 
+	// the half-hour daylight saving time, a skipped day and the zones which have changed their rules
+	private static final String[] TIME_ZONES = { 
+		"UTC", "America/New_York", "Europe/Berlin", "Asia/Kolkata", "Asia/Kathmandu", 
+		"America/Sao_Paulo", "Australia/Lord_Howe", "Pacific/Apia", "Europe/Moscow", "America/Havana"
+	};
+	
+	/**
+	 * The moments every 30 minutes are split into the same fields
+	 */
+	@Test
+	public void toFieldsMatchesGregorianCalendar() {
+		int[] fields = new int[DateTimeBounds.FIELDS_COUNT];
+		int[] expectedFields = new int[DateTimeBounds.FIELDS_COUNT];
+		
+		for (String id : TIME_ZONES) {
+			TimeZone timeZone = TimeZone.getTimeZone(id);
+			CalendarBackend backend = new ArithmeticCalendarBackend(timeZone);
+			CalendarBackend expectedBackend = new GregorianCalendarBackend(timeZone);
+			
+			for (long minutes = FIRST_MINUTES; minutes <= LAST_MINUTES; minutes += STEP_MINUTES) {
+				long millis = minutes * MILLIS_PER_MINUTE;
+				backend.toFields(millis, fields);
+				expectedBackend.toFields(millis, expectedFields);
+				if (!Arrays.equals(expectedFields, fields)) {
+					assertArrayEquals(id + " at " + millis, expectedFields, fields);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * The local times every 30 minutes (including the ones in the gaps and the overlaps) 
+	 * are resolved to the same moments
+	 */
+	@Test
+	public void toMillisMatchesGregorianCalendar() {
+		int[] fields = new int[DateTimeBounds.FIELDS_COUNT];
+		
+		for (String id : TIME_ZONES) {
+			TimeZone timeZone = TimeZone.getTimeZone(id);
+			CalendarBackend backend = new ArithmeticCalendarBackend(timeZone);
+			CalendarBackend expectedBackend = new GregorianCalendarBackend(timeZone);
+			
+			for (long minutes = FIRST_MINUTES; minutes <= LAST_MINUTES; minutes += STEP_MINUTES) {
+				ArithmeticCalendarBackend.fromLocalMinutes(minutes, fields);
+				int year = fields[DateTimeBounds.YEAR];
+				int month = fields[DateTimeBounds.MONTH];
+				int dayOfMonth = fields[DateTimeBounds.DAY_OF_MONTH];
+				int hourOfDay = fields[DateTimeBounds.HOUR_OF_DAY];
+				int minute = fields[DateTimeBounds.MINUTE];
+				
+				long expected = expectedBackend.toMillis(year, month, dayOfMonth, hourOfDay, minute);
+				long actual = backend.toMillis(year, month, dayOfMonth, hourOfDay, minute);
+				if (expected != actual) {
+					assertEquals(id + " at " + year + "-" + month + "-" + dayOfMonth + " " + hourOfDay + ":" + minute, expected, actual);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Every zone the JVM knows, once a day at the local 02:30 (where most of the gaps are)
+	 */
+	@Test
+	public void allTimeZonesMatchGregorianCalendar() {
+		int[] fields = new int[DateTimeBounds.FIELDS_COUNT];
+		int[] expectedFields = new int[DateTimeBounds.FIELDS_COUNT];
+		
+		for (String id : TimeZone.getAvailableIDs()) {
+			TimeZone timeZone = TimeZone.getTimeZone(id);
+			CalendarBackend backend = new ArithmeticCalendarBackend(timeZone);
+			CalendarBackend expectedBackend = new GregorianCalendarBackend(timeZone);
+			
+			for (long minutes = FIRST_MINUTES + 150; minutes <= LAST_MINUTES; minutes += ArithmeticCalendarBackend.MINUTES_PER_DAY) {
+				ArithmeticCalendarBackend.fromLocalMinutes(minutes, fields);
+				int year = fields[DateTimeBounds.YEAR];
+				int month = fields[DateTimeBounds.MONTH];
+				int dayOfMonth = fields[DateTimeBounds.DAY_OF_MONTH];
+				
+				long expected = expectedBackend.toMillis(year, month, dayOfMonth, 2, 30);
+				long actual = backend.toMillis(year, month, dayOfMonth, 2, 30);
+				if (expected != actual) {
+					assertEquals(id + " at " + year + "-" + month + "-" + dayOfMonth + " 2:30", expected, actual);
+				}
+				
+				backend.toFields(actual, fields);
+				expectedBackend.toFields(actual, expectedFields);
+				if (!Arrays.equals(expectedFields, fields)) {
+					assertArrayEquals(id + " at " + actual, expectedFields, fields);
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void leapYears() {
+		for (int year = DateTimeBounds.DEFAULT_LOWEST_YEAR; year <= DateTimeBounds.DEFAULT_HIGHEST_YEAR; year++) {
+			boolean expected = new GregorianCalendar().isLeapYear(year);
+			assertEquals("Year " + year, expected, DateTimeBounds.isLeapYear(year));
+			assertEquals("February of " + year, expected ? 29 : 28, DateTimeBounds.getHighestDayInMonth(2, year));
+		}
+		assertTrue(DateTimeBounds.isLeapYear(2000));
+		assertFalse(DateTimeBounds.isLeapYear(2100));
+	}
+	
+	@Test
+	public void epochDaysRoundTrip() {
+		int[] fields = new int[DateTimeBounds.FIELDS_COUNT];
+		long first = ArithmeticCalendarBackend.toEpochDay(DateTimeBounds.DEFAULT_LOWEST_YEAR, 1, 1);
+		long last = ArithmeticCalendarBackend.toEpochDay(DateTimeBounds.DEFAULT_HIGHEST_YEAR, 12, 31);
+		assertEquals(0, first);
+		for (long epochDay = first; epochDay <= last; epochDay++) {
+			ArithmeticCalendarBackend.fromEpochDay(epochDay, fields);
+			assertEquals(epochDay, ArithmeticCalendarBackend.toEpochDay(fields[DateTimeBounds.YEAR], fields[DateTimeBounds.MONTH], 
+			                                                             fields[DateTimeBounds.DAY_OF_MONTH]));
+		}
+	}
+}
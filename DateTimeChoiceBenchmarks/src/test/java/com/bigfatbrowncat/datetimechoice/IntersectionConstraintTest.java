@@ -0,0 +1,127 @@
+package com.bigfatbrowncat.datetimechoice;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks {@link IntersectionConstraint} against a minute by minute search
+ * over the constraints it's made of
+ */
+public class IntersectionConstraintTest {
+	private static final long FIRST_MINUTES = IntervalSetConstraint.toLocalMinutes(2013, 1, 1, 0, 0);
+	private static final long LAST_MINUTES = IntervalSetConstraint.toLocalMinutes(2014, 1, 1, 0, 0);
+	
+	// How far the minute by minute search goes
+	private static final long WINDOW_MINUTES = 21 * IntervalSetConstraint.MINUTES_PER_DAY;
+	private static final int SAMPLES = 2000;
+	
+	private static IntervalSetConstraint weekdays() {
+		// 1970-01-01 was Thursday, so Monday starts on the 4th day of the week
+		long[] starts = new long[5];
+		long[] ends = new long[5];
+		for (int i = 0; i < 5; i++) {
+			long monday = 4 * IntervalSetConstraint.MINUTES_PER_DAY;
+			starts[i] = (monday + i * IntervalSetConstraint.MINUTES_PER_DAY) % IntervalSetConstraint.MINUTES_PER_WEEK;
+			ends[i] = starts[i] + IntervalSetConstraint.MINUTES_PER_DAY;
+		}
+		return new IntervalSetConstraint(starts, ends, IntervalSetConstraint.MINUTES_PER_WEEK);
+	}
+	
+	private static IntervalSetConstraint holidays() {
+		long[] starts = {
+			IntervalSetConstraint.toLocalMinutes(2013, 1, 1, 0, 0),
+			IntervalSetConstraint.toLocalMinutes(2013, 5, 1, 0, 0),
+			IntervalSetConstraint.toLocalMinutes(2013, 12, 25, 0, 0)
+		};
+		long[] ends = new long[starts.length];
+		for (int i = 0; i < starts.length; i++) {
+			ends[i] = starts[i] + 2 * IntervalSetConstraint.MINUTES_PER_DAY;
+		}
+		return new IntervalSetConstraint(starts, ends);
+	}
+	
+	private static boolean allows(DateTimeConstraint[] parts, long minutes) {
+		for (DateTimeConstraint part : parts) {
+			if (part.ceiling(minutes) != minutes) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static void checkAgainstSearch(DateTimeConstraint... parts) {
+		IntersectionConstraint intersection = new IntersectionConstraint(parts);
+		Random random = new Random(17);
+		for (int i = 0; i < SAMPLES; i++) {
+			long minutes = FIRST_MINUTES + (long) (random.nextDouble() * (LAST_MINUTES - FIRST_MINUTES));
+			
+			long expectedCeiling = DateTimeConstraint.NONE;
+			for (long m = minutes; m < minutes + WINDOW_MINUTES; m++) {
+				if (allows(parts, m)) {
+					expectedCeiling = m;
+					break;
+				}
+			}
+			assertEquals("ceiling of " + minutes, expectedCeiling, intersection.ceiling(minutes, minutes + WINDOW_MINUTES - 1));
+			
+			long expectedFloor = DateTimeConstraint.NONE;
+			for (long m = minutes; m > minutes - WINDOW_MINUTES; m--) {
+				if (allows(parts, m)) {
+					expectedFloor = m;
+					break;
+				}
+			}
+			assertEquals("floor of " + minutes, expectedFloor, intersection.floor(minutes, minutes - WINDOW_MINUTES + 1));
+		}
+	}
+	
+	@Test
+	public void businessHoursInSlots() {
+		checkAgainstSearch(IntervalSetConstraint.daily(9 * 60, 18 * 60), IntervalSetConstraint.everyMinutes(15));
+	}
+	
+	@Test
+	public void workdaysExceptHolidays() {
+		checkAgainstSearch(weekdays(), IntervalSetConstraint.daily(9 * 60, 18 * 60),
+				IntervalSetConstraint.everyMinutes(15), holidays().complement());
+	}
+	
+	@Test
+	public void holidaysOnly() {
+		checkAgainstSearch(holidays(), IntervalSetConstraint.daily(9 * 60, 18 * 60));
+	}
+	
+	@Test
+	public void periodsWithoutSmallCommonMultiple() {
+		checkAgainstSearch(weekdays(), IntervalSetConstraint.everyMinutes(13));
+	}
+	
+	@Test
+	public void nestedIntersections() {
+		checkAgainstSearch(new IntersectionConstraint(weekdays(), IntervalSetConstraint.everyMinutes(10)),
+				new IntersectionConstraint(IntervalSetConstraint.daily(8 * 60, 12 * 60), holidays().complement()));
+	}
+	
+	/**
+	 * The daily mornings and evenings never overlap. That's known when the constraint
+	 * is created, so nothing is searched over the whole range of years.
+	 */
+	@Test
+	public void disjointPeriodsAllowNothing() {
+		IntersectionConstraint intersection = new IntersectionConstraint(
+				IntervalSetConstraint.daily(6 * 60, 10 * 60), IntervalSetConstraint.daily(18 * 60, 22 * 60));
+		
+		long start = System.nanoTime();
+		for (long minutes = FIRST_MINUTES; minutes < LAST_MINUTES; minutes += IntervalSetConstraint.MINUTES_PER_DAY) {
+			assertEquals(DateTimeConstraint.NONE, intersection.ceiling(minutes));
+			assertEquals(DateTimeConstraint.NONE, intersection.floor(minutes));
+		}
+		long elapsedMillis = (System.nanoTime() - start) / 1000000;
+		
+		// Nearly nothing for the 730 lookups, the whole range search took seconds
+		assertEquals("the lookups took " + elapsedMillis + " ms", true, elapsedMillis < 500);
+	}
+}
@@ -0,0 +1,50 @@
+package com.bigfatbrowncat.datetimechoice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * Checks that {@link SavedStateEncoding} restores what it has saved 
+ * and drops the states it can't read
+ */
+public class SavedStateEncodingTest {
+	// 2013-08-15 02:44:30.125 UTC
+	private static final long VALUE = 1376534670125L;
+	
+	@Test
+	public void roundTrip() {
+		DateTimeChoiceModel[] models = {
+			new DateTimeChoiceModel(VALUE),
+			new DateTimeChoiceModel(VALUE, VALUE - 60000, VALUE + 60000),
+			new DateTimeChoiceModel(VALUE, DateTimeChoiceModel.NO_BOUND, VALUE),
+			new DateTimeChoiceModel(Long.MAX_VALUE, Long.MIN_VALUE + 1, Long.MAX_VALUE),
+			new DateTimeChoiceModel(-1L, -2L, 0L)
+		};
+		for (DateTimeChoiceModel model : models) {
+			assertEquals(model, SavedStateEncoding.decode(SavedStateEncoding.encode(model)));
+		}
+	}
+	
+	@Test
+	public void unknownVersionIsDropped() {
+		long[] state = SavedStateEncoding.encode(new DateTimeChoiceModel(VALUE));
+		state[0] = SavedStateEncoding.VERSION + 1;
+		assertNull(SavedStateEncoding.decode(state));
+		state[0] = 0;
+		assertNull(SavedStateEncoding.decode(state));
+	}
+	
+	@Test
+	public void damagedStateIsDropped() {
+		assertNull(SavedStateEncoding.decode(null));
+		assertNull(SavedStateEncoding.decode(new long[0]));
+		assertNull(SavedStateEncoding.decode(new long[] { SavedStateEncoding.VERSION, VALUE }));
+		
+		long[] state = SavedStateEncoding.encode(new DateTimeChoiceModel(VALUE));
+		long[] longer = new long[state.length + 1];
+		System.arraycopy(state, 0, longer, 0, state.length);
+		assertNull(SavedStateEncoding.decode(longer));
+	}
+}
@@ -0,0 +1,218 @@
+package com.bigfatbrowncat.datetimechoice;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.TimeZone;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * The budgets of a spin tick: the bytes allocated and the constraint calls made
+ * by {@link DateTimeBounds#compute(int[], int)} and by a whole tick of {@link BenchmarkPicker}.
+ * 
+ * A change which makes a tick allocate again or query the constraint much more often
+ * fails the build here instead of showing up later as dropped frames.
+ */
+public class TickBudgetTest {
+	// 2013-01-01 00:00 UTC and 2014-12-31 23:59 UTC
+	private static final long MIN_VALUE = 1356998400000L;
+	private static final long MAX_VALUE = 1420070340000L;
+	
+	private static final int WARMUP_TICKS = 20000;
+	private static final int MEASURED_TICKS = 10000;
+	
+	// The bytes a tick may allocate on average.
+	// Zero in the steady state, the slack is for the measurement itself
+	private static final double TICK_ALLOCATION_BUDGET = 1;
+	
+	// The constraint calls a tick may make on average
+	private static final double TICK_CONSTRAINT_CALLS_BUDGET = 32;
+	
+	private static final String[] TIME_ZONES = { "UTC", "America/New_York", "Europe/Moscow" };
+	
+	/**
+	 * Counts the calls to the constraint it wraps
+	 */
+	private static final class CountingConstraint implements DateTimeConstraint {
+		private final DateTimeConstraint constraint;
+		long calls;
+		
+		CountingConstraint(DateTimeConstraint constraint) {
+			this.constraint = constraint;
+		}
+		
+		@Override
+		public long ceiling(long localMinutes) {
+			calls++;
+			return constraint.ceiling(localMinutes);
+		}
+		
+		@Override
+		public long floor(long localMinutes) {
+			calls++;
+			return constraint.floor(localMinutes);
+		}
+	}
+	
+	private com.sun.management.ThreadMXBean threadBean;
+	
+	@Before
+	public void setUp() {
+		assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+		threadBean.setThreadAllocatedMemoryEnabled(true);
+	}
+	
+	private long allocatedBytes() {
+		return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+	
+	private static DateTimeConstraint businessHours() {
+		return new IntersectionConstraint(IntervalSetConstraint.daily(9 * 60, 18 * 60), IntervalSetConstraint.everyMinutes(15));
+	}
+	
+	/**
+	 * Raises the field until its highest value, then lowers it back, <code>count</code> ticks
+	 * @return the sum of the values, so that the ticks can't be optimized away
+	 */
+	private static long sweep(BenchmarkPicker picker, int field, int count) {
+		long sum = 0;
+		int direction = 1;
+		for (int i = 0; i < count; i++) {
+			int value = picker.fields[field];
+			if (value == picker.bounds.getHigher(field)) {
+				direction = -1;
+			} else if (value == picker.bounds.getLower(field)) {
+				direction = 1;
+			}
+			sum += picker.tick(field, direction);
+		}
+		return sum;
+	}
+	
+	private double allocationPerTick(BenchmarkPicker picker, int field) {
+		sweep(picker, field, WARMUP_TICKS);
+		
+		long before = allocatedBytes();
+		sweep(picker, field, MEASURED_TICKS);
+		long allocated = allocatedBytes() - before;
+		
+		return (double) allocated / MEASURED_TICKS;
+	}
+	
+	@Test
+	public void computeDoesNotAllocate() {
+		DateTimeBounds bounds = new DateTimeBounds();
+		int[] fields = { 2013, 6, 15, 12, 30, 0, 0 };
+		int[] lowest = { 2013, 1, 1, 0, 0, 0, 0 };
+		int[] highest = { 2014, 12, 31, 23, 59, 59, 999 };
+		bounds.setLowest(lowest);
+		bounds.setHighest(highest);
+		
+		long sum = 0;
+		for (int i = 0; i < WARMUP_TICKS; i++) {
+			fields[DateTimeBounds.MINUTE] = i % 60;
+			bounds.compute(fields, DateTimeBounds.MINUTE);
+			sum += bounds.getValue(DateTimeBounds.MINUTE);
+		}
+		
+		long before = allocatedBytes();
+		for (int i = 0; i < MEASURED_TICKS; i++) {
+			fields[DateTimeBounds.DAY_OF_MONTH] = 1 + i % 31;
+			bounds.compute(fields, DateTimeBounds.DAY_OF_MONTH);
+			sum += bounds.getValue(DateTimeBounds.DAY_OF_MONTH);
+		}
+		double perCompute = (double) (allocatedBytes() - before) / MEASURED_TICKS;
+		
+		assertTrue("compute() allocates " + perCompute + " bytes per call (" + sum + ")",
+				perCompute <= TICK_ALLOCATION_BUDGET);
+	}
+	
+	@Test
+	public void tickAllocationIsWithinBudget() {
+		int[] fieldsToSpin = { DateTimeBounds.MINUTE, DateTimeBounds.HOUR_OF_DAY, DateTimeBounds.DAY_OF_MONTH, DateTimeBounds.MONTH };
+		for (String timeZone : TIME_ZONES) {
+			for (int field : fieldsToSpin) {
+				BenchmarkPicker picker = new BenchmarkPicker(timeZone, (DateTimeConstraint) null, MIN_VALUE, MAX_VALUE);
+				double perTick = allocationPerTick(picker, field);
+				assertTrue(timeZone + ", field " + field + ": a tick allocates " + perTick + " bytes",
+						perTick <= TICK_ALLOCATION_BUDGET);
+				
+				picker = new BenchmarkPicker(timeZone, businessHours(), MIN_VALUE, MAX_VALUE);
+				perTick = allocationPerTick(picker, field);
+				assertTrue(timeZone + ", field " + field + ", business hours: a tick allocates " + perTick + " bytes",
+						perTick <= TICK_ALLOCATION_BUDGET);
+			}
+		}
+	}
+	
+	@Test
+	public void tickConstraintCallsAreWithinBudget() {
+		int[] fieldsToSpin = { DateTimeBounds.MINUTE, DateTimeBounds.HOUR_OF_DAY, DateTimeBounds.DAY_OF_MONTH, DateTimeBounds.MONTH };
+		for (String timeZone : TIME_ZONES) {
+			for (int field : fieldsToSpin) {
+				CountingConstraint constraint = new CountingConstraint(businessHours());
+				BenchmarkPicker picker = new BenchmarkPicker(timeZone, constraint, MIN_VALUE, MAX_VALUE);
+				
+				constraint.calls = 0;
+				sweep(picker, field, MEASURED_TICKS);
+				double perTick = (double) constraint.calls / MEASURED_TICKS;
+				
+				assertTrue(timeZone + ", field " + field + ": a tick makes " + perTick + " constraint calls",
+						perTick <= TICK_CONSTRAINT_CALLS_BUDGET);
+			}
+		}
+	}
+	
+	/**
+	 * Spinning the year through the whole range scans each year once, 
+	 * then the years are looked up without allocating
+	 */
+	@Test
+	public void yearSpinAllocationIsWithinBudget() {
+		long lowest = IntervalSetConstraint.toLocalMinutes(DateTimeBounds.DEFAULT_LOWEST_YEAR, 1, 2, 0, 0) * ArithmeticCalendarBackend.MILLIS_PER_MINUTE;
+		long highest = IntervalSetConstraint.toLocalMinutes(DateTimeBounds.DEFAULT_HIGHEST_YEAR, 12, 30, 0, 0) * ArithmeticCalendarBackend.MILLIS_PER_MINUTE;
+		for (String timeZone : TIME_ZONES) {
+			BenchmarkPicker picker = new BenchmarkPicker(timeZone, (DateTimeConstraint) null, lowest, highest);
+			double perTick = allocationPerTick(picker, DateTimeBounds.YEAR);
+			assertTrue(timeZone + ": a year tick allocates " + perTick + " bytes",
+					perTick <= TICK_ALLOCATION_BUDGET);
+		}
+	}
+	
+	/**
+	 * The daylight saving gaps are excluded only if the range has any
+	 */
+	@Test
+	public void gapConstraintOnlyForRangesWithGaps() {
+		// 2013-06-01 and 2013-09-01 UTC, New York moves its clocks in March and November
+		long summerStart = 1370044800000L;
+		long summerEnd = 1377993600000L;
+		assertNull(new BenchmarkPicker("America/New_York", (DateTimeConstraint) null, summerStart, summerEnd).bounds.getConstraint());
+		assertNotNull(new BenchmarkPicker("America/New_York", (DateTimeConstraint) null, MIN_VALUE, MAX_VALUE).bounds.getConstraint());
+		
+		// Moscow hasn't moved its clocks forward since 2011, India since 1945
+		assertNull(new BenchmarkPicker("Europe/Moscow", (DateTimeConstraint) null, MIN_VALUE, MAX_VALUE).bounds.getConstraint());
+		assertNull(new BenchmarkPicker("Asia/Kolkata", (DateTimeConstraint) null, MIN_VALUE, MAX_VALUE).bounds.getConstraint());
+		
+		// Without the bounds, the range the view can show
+		ArithmeticCalendarBackend backend = new ArithmeticCalendarBackend(TimeZone.getTimeZone("Europe/Moscow"));
+		assertTrue(DaylightGapConstraint.isNeeded(backend.getTransitions(), DateTimeChoiceModel.NO_BOUND, DateTimeChoiceModel.NO_BOUND));
+	}
+	
+	/**
+	 * A picker without a constraint of its own in a zone without daylight saving time
+	 * doesn't query any constraint
+	 */
+	@Test
+	public void noConstraintInFixedZone() {
+		BenchmarkPicker picker = new BenchmarkPicker("UTC", (DateTimeConstraint) null, MIN_VALUE, MAX_VALUE);
+		assertNull(picker.bounds.getConstraint());
+	}
+}
@@ -1,8 +1,6 @@
 package com.bigfatbrowncat.datetimechoice.test;
 
-import java.util.Calendar;
-import java.util.GregorianCalendar;
-
+import com.bigfatbrowncat.datetimechoice.DateRangeController;
 import com.bigfatbrowncat.datetimechoice.DateTimeChoice;
 
 import android.app.Activity;
@@ -11,15 +9,19 @@ import android.view.Menu;
 import android.view.View;
 import android.view.View.OnClickListener;
 import android.widget.Button;
+import android.widget.EditText;
 import android.widget.TextView;
 
-public class MainActivity extends Activity implements OnClickListener {
+public class MainActivity extends Activity implements OnClickListener, DateRangeController.OnRangeChangedListener {
 
 	private Button demoButton;
 	private TextView demoTextView;
 	private DateTimeChoice dateTimeChoice;
+	private DateTimeChoice dateTimeChoice2;
+	private DateRangeController meetingController;
 	
 	private static final long MILLISECONDS_BASE = 75600000L;	// 21 hour between 1 Jan 1970 3:00 and 2 Jan 1970 0:00
+	private static final long MIN_MEETING_DURATION = 15L * 60 * 1000;
 	private static final long MAX_MEETING_DURATION = 8L * 60 * 60 * 1000;
 	
 	@Override
@@ -27,19 +29,18 @@ public class MainActivity extends Activity implements OnClickListener {
 		super.onCreate(savedInstanceState);
 		setContentView(R.layout.activity_main);
 		
+		// The meeting start and its end, the end follows the start
 		dateTimeChoice = (DateTimeChoice)this.findViewById(R.id.dateTimeChoice);
-		/*dateTimeChoice.setMinValue(new GregorianCalendar(1985, Calendar.APRIL, 13, 8, 40));
-		dateTimeChoice.setMaxValue(new GregorianCalendar(2013, Calendar.AUGUST, 15, 2, 44));*/
-		
-		Calendar base = new GregorianCalendar();
-		base.setTimeInMillis(MILLISECONDS_BASE);
+		dateTimeChoice2 = (DateTimeChoice)this.findViewById(R.id.dateTimeChoice2);
 		
-		Calendar max = new GregorianCalendar();
-		max.setTimeInMillis(MILLISECONDS_BASE + MAX_MEETING_DURATION);
+		meetingController = new DateRangeController(dateTimeChoice, dateTimeChoice2);
+		meetingController.setLimitsMillis(MILLISECONDS_BASE, MILLISECONDS_BASE + MAX_MEETING_DURATION);
+		meetingController.setDurations(MIN_MEETING_DURATION, MAX_MEETING_DURATION);
+		meetingController.setRange(MILLISECONDS_BASE, MILLISECONDS_BASE + MIN_MEETING_DURATION);
+		meetingController.setOnRangeChangedListener(this);
 		
-		dateTimeChoice.setMinValue(base);
-		dateTimeChoice.setMaxValue(max);
-		dateTimeChoice.setValue(base);
+		// The end can be typed at once, like "15 Aug 2:44"
+		dateTimeChoice2.setFastEntryView((EditText)findViewById(R.id.fastEntry_editText));
 		
 		demoButton = (Button)findViewById(R.id.demo_button);
 		demoTextView = (TextView)findViewById(R.id.demo_textView);
@@ -57,14 +58,22 @@ public class MainActivity extends Activity implements OnClickListener {
 	@Override
 	public void onClick(View arg0) {
 		if (arg0 == demoButton) {
-			long msec = dateTimeChoice.getValue().getTimeInMillis();
-			long allMinutes = (dateTimeChoice.getValue().getTimeInMillis() - MILLISECONDS_BASE) / 1000 / 60;
-			long hours = allMinutes / 60;
-			long minutes = allMinutes % 60;
-			
-			demoTextView.setText(msec + "; " + hours + ":" + minutes);
+			showMeeting(meetingController.getStartMillis(), meetingController.getEndMillis());
 		}
 		
 	}
+	
+	@Override
+	public void onRangeChanged(DateRangeController controller, long startMillis, long endMillis) {
+		showMeeting(startMillis, endMillis);
+	}
+	
+	private void showMeeting(long startMillis, long endMillis) {
+		long allMinutes = (endMillis - startMillis) / 1000 / 60;
+		long hours = allMinutes / 60;
+		long minutes = allMinutes % 60;
+		
+		demoTextView.setText(startMillis + "; " + hours + ":" + minutes);
+	}
 
 }